@@ -42,6 +42,9 @@ public abstract class CardGame<T extends CardPlayer> implements Runnable
 
     private Object toBePlayed;
 
+    private boolean recordSeeds = false;
+    private Long seed = null;
+
     // getters and setters for these values are the responsibility of the implementing class
     protected boolean gameOver = false;
 
@@ -171,7 +174,55 @@ public abstract class CardGame<T extends CardPlayer> implements Runnable
      */
     public int restart( int firstPlayer, boolean withDiscard )
     {
+        if (recordSeeds)
+            return restart( firstPlayer, withDiscard, deck.newSeed() );
         deck.reset();   // resets the owner of all cards to 0 (the deck) and shuffles
+        seed = null;
+        return startRound( firstPlayer, withDiscard );
+    }
+
+    /**
+     * Restarts a round of play, as {@link CardGame#restart(int, boolean)} does, but shuffles the
+     * {@link CardGame#deck} with a seed. Restarting with the same seed deals the same cards, so
+     * a round can be replayed, or a load test repeated, exactly.
+     *
+     * @param firstPlayer The index of the player in the {@link CardGame#playerList} who will be the
+     *                    first to play the new round.
+     * @param withDiscard If true, the first card in the newly shuffled deck will be discarded to
+     *                    start the discard stack.
+     * @param seed        the seed for the shuffle; see {@link Deck#reset(long)}
+     * @return  The index of the player to start the game.
+     */
+    public int restart( int firstPlayer, boolean withDiscard, long seed )
+    {
+        deck.reset( seed );
+        this.seed = seed;
+        return startRound( firstPlayer, withDiscard );
+    }
+
+    /**
+     * When set, {@link CardGame#restart(int, boolean)} draws a new seed for every round from the
+     * deck's own (secure) source of random numbers and shuffles with it, so that
+     * {@link CardGame#getSeed()} can be recorded and the round replayed later. Off by default.
+     *
+     * @param recordSeeds true to shuffle every round with a recordable seed
+     */
+    public void setRecordSeeds( boolean recordSeeds )
+    {
+        this.recordSeeds = recordSeeds;
+    }
+
+    /**
+     * @return the seed the current round was shuffled with, or null if it was not shuffled with
+     * a seed.
+     */
+    public Long getSeed()
+    {
+        return seed;
+    }
+
+    private int startRound( int firstPlayer, boolean withDiscard )
+    {
         isRoundOver = false;
         gameOver = false;
         pause();    // The game won't respond until unpaused!
@@ -223,7 +274,7 @@ public abstract class CardGame<T extends CardPlayer> implements Runnable
      */
     protected boolean isPlayable( Card cardPlayed, int player, int target )
     {
-        return null != deck.getMatchingCard( cardPlayed, player );
+        return deck.isHeldBy( cardPlayed, player );
     }
 
     /**
@@ -334,6 +385,14 @@ public abstract class CardGame<T extends CardPlayer> implements Runnable
         return deck.buildHandAsJSON( hand, pathToFaceImage );
     }
 
+    /**
+     * Proxy method to protect access to the {@link CardGame#deck} protected variable.
+     */
+    public StringBuilder writeHandAsJSON( String pathToFaceImage, List<Card> hand, StringBuilder out )
+    {
+        return deck.writeHandAsJSON( hand, pathToFaceImage, out );
+    }
+
     /**
      * Proxy method to protect access to the {@link CardGame#deck} protected variable.
      */
@@ -1,17 +1,41 @@
 package com.passkeysoft;
 
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
- * A java object representing a single instance of a playing card
+ * A java object representing the identity of a single playing card: its suit and its value.
+ * A Card is immutable. Everything that changes during a game, such as who holds the card and
+ * where it sits in the deck, is kept by the {@link Deck} the card belongs to, so the same Card
+ * instance can safely be shared by any number of decks and threads.
+ * <p>
+ * Use {@link Card#of(int, int)} to get the canonical, JVM-wide instance of a card rather than
+ * creating a new one. Two cards with the same suit and value are equal whether or not they are
+ * the same instance.
  */
-public class Card
+public final class Card
 {
-    private int suit;
-    private int value;
-    private int owner;      // 0 is deck-owner, {@link Deck#DISCARD} is discarded
-    private long randomized;
+    // Canonical cards for small suits and values (which covers every ordinary deck) are created
+    // up front; anything more exotic is created on demand.
+    private static final int DENSE_SUITS = 16;
+    private static final int DENSE_VALUES = 64;
+    private static final Card[] denseCards = new Card[DENSE_SUITS * DENSE_VALUES];
+    private static final ConcurrentHashMap<Long, Card> sparseCards = new ConcurrentHashMap<>(  );
+    static
+    {
+        for (int suit = 0; suit < DENSE_SUITS; suit++)
+        {
+            for (int value = 0; value < DENSE_VALUES; value++)
+            {
+                denseCards[suit * DENSE_VALUES + value] = new Card( suit, value );
+            }
+        }
+    }
+
+    private final int suit;
+    private final int value;
 
     /**
-     * Instantiates a new Card.
+     * Instantiates a new Card. Prefer {@link Card#of(int, int)}, which returns a shared instance.
      *
      * @param suit  An arbitrary integer value representing the suit of this card. All cards
      *              sharing this value will be considered to be of the same suit.
@@ -24,65 +48,36 @@ public class Card
     }
 
     /**
-     * Sets the owner of this card, as an integer value.
-     *
-     * @param owner the new owner of the card, as an integer value
-     * @return the {@link Card} object affected, suitable for fluent-style programming.
-     */
-    public Card setOwner( int owner )
-    {
-        this.owner = owner;
-        return this;
-    }
-
-    /**
-     * Gets The owner value of this card.
-     *
-     * @return The owner of this card. 0 indicates that the card belongs to the deck,
-     * and by convention {@link Deck#DISCARD} (65535, 0xFFFF) indicates that the card
-     * has been discarded.
-     */
-    public int getOwner()
-    {
-        return owner;
-    }
-
-    /**
-     * Sets a random number for this card. Used by the {@link Deck} object to shuffle a deck
+     * Gets the canonical instance of a card. The same instance is returned for the same suit
+     * and value for the life of the JVM.
      *
-     * @param randomNumber the random number to be assigned to this card. This method should
-     *                     only be used by the owning {@link Deck} instance, but I can't figure
-     *                     out how to make the compiler enforce this rule without making
-     *                     this class an inner class of {@link Deck}.
-     * @return the {@link Card} object affected, suitable for fluent-style programming.
+     * @param suit  An arbitrary integer value representing the suit of the card.
+     * @param value An arbitrary integer value representing the face value of the card.
+     * @return the shared {@link Card} with this suit and value.
      */
-    public Card setRandom( long randomNumber )
+    public static Card of( int suit, int value )
     {
-        this.randomized = randomNumber;
-        return this;
+        if (0 <= suit && suit < DENSE_SUITS && 0 <= value && value < DENSE_VALUES)
+            return denseCards[suit * DENSE_VALUES + value];
+        return sparseCards.computeIfAbsent( ((long) suit << 32) | (value & 0xFFFFFFFFL),
+            k -> new Card( suit, value ));
     }
 
     /**
-     * Gets the random number assigned to this card. Probably not useful to anything other
-     * than the {@link Deck} class.
+     * Gets the canonical instance of a card if there is one, without creating one otherwise. For
+     * cards read from untrusted input, which {@link Card#of(int, int)} would keep for the life
+     * of the JVM.
      *
-     * @return the random number assigned to this card
+     * @param suit  An arbitrary integer value representing the suit of the card.
+     * @param value An arbitrary integer value representing the face value of the card.
+     * @return the shared {@link Card} with this suit and value, or a new, unshared one.
      */
-    public long getRandom( )
+    static Card lookup( int suit, int value )
     {
-        return randomized;
-    }
-
-    /**
-     * Sets the suit.  TODO: Normally, this should not be allowed. We might need to find some way to protect it.
-     *
-     * @param newSuit the new suit for the card
-     * @return the {@link Card} object affected, suitable for fluent-style programming.
-     */
-    public Card setSuit( int newSuit )
-    {
-        suit = newSuit;
-        return this;
+        if (0 <= suit && suit < DENSE_SUITS && 0 <= value && value < DENSE_VALUES)
+            return denseCards[suit * DENSE_VALUES + value];
+        Card card = sparseCards.get( ((long) suit << 32) | (value & 0xFFFFFFFFL) );
+        return (null == card) ? new Card( suit, value ) : card;
     }
 
     /**
@@ -105,4 +100,27 @@ public class Card
     {
         return value;
     }
+
+    @Override
+    public boolean equals( Object o )
+    {
+        if (this == o)
+            return true;
+        if (!(o instanceof Card))
+            return false;
+        Card card = (Card) o;
+        return suit == card.suit && value == card.value;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return 31 * suit + value;
+    }
+
+    @Override
+    public String toString()
+    {
+        return suit + ":" + value;
+    }
 }
@@ -0,0 +1,174 @@
+package com.passkeysoft;
+
+import java.util.List;
+
+/**
+ * Packs a {@link Card} of a standard 52 card deck into a single int, so hands can be passed
+ * around as int arrays and evaluated without touching Card objects. The layout is the one made
+ * popular by Kevin Suffecool's ("Cactus Kev's") poker hand evaluator:
+ * <pre>
+ *   +--------+--------+--------+--------+
+ *   |xxxbbbbb|bbbbbbbb|ssssrrrr|xxpppppp|
+ *   +--------+--------+--------+--------+
+ * </pre>
+ * where b is a bit set for the rank of the card (bit 16 for the lowest), s holds the suit bit,
+ * r is the rank itself and p is the prime number assigned to the rank (2 for the lowest rank,
+ * 41 for the highest). This makes the common questions cheap: ORing the rank bits of a hand
+ * gives the ranks present, ANDing the suit bits tells whether it is a flush, and multiplying
+ * the primes gives a value which identifies the ranks present, pairs and all.
+ * <p>
+ * Ranks run from 0 to 12. Suits must be single bits, that is 1, 2, 4 or 8, which is how
+ * PokerDeck numbers them. No code produced by this class is zero, so zero may be used to mean
+ * "no card".
+ */
+@SuppressWarnings({"WeakerAccess"})
+public final class CardCodec
+{
+    /** The number of ranks in a suit. */
+    public static final int RANKS = 13;
+
+    /** The prime numbers assigned to the ranks, lowest rank first. */
+    private static final int[] PRIMES = {2, 3, 5, 7, 11, 13, 17, 19, 23, 29, 31, 37, 41};
+
+    private static final int SUIT_SHIFT = 12;
+    private static final int RANK_SHIFT = 8;
+    private static final int BITS_SHIFT = 16;
+
+    // every code, indexed by suit bit (0 - 15) and rank; zero where the suit is not a single bit
+    private static final int[] codes = new int[16 * RANKS];
+    static
+    {
+        for (int suit = 1; suit < 16; suit <<= 1)
+        {
+            for (int rank = 0; rank < RANKS; rank++)
+            {
+                codes[suit * RANKS + rank] = (1 << (BITS_SHIFT + rank)) | (suit << SUIT_SHIFT)
+                    | (rank << RANK_SHIFT) | PRIMES[rank];
+            }
+        }
+    }
+
+    private CardCodec()
+    {
+    }
+
+    /**
+     * Encodes a suit and a rank.
+     *
+     * @param suit the suit; 1, 2, 4 or 8.
+     * @param rank the rank, from 0 to 12.
+     * @return the packed representation of the card.
+     * @throws IllegalArgumentException if the suit or rank can not be encoded.
+     */
+    public static int encode( int suit, int rank )
+    {
+        int code = (0 < suit && suit < 16 && 0 <= rank && rank < RANKS) ? codes[suit * RANKS + rank] : 0;
+        if (0 == code)
+            throw new IllegalArgumentException( "Can not encode suit " + suit + ", rank " + rank );
+        return code;
+    }
+
+    /**
+     * Encodes a card.
+     *
+     * @param card the card; its value is taken to be its rank.
+     * @return the packed representation of the card.
+     * @throws IllegalArgumentException if the card can not be encoded.
+     */
+    public static int encode( Card card )
+    {
+        return encode( card.getSuit(), card.getValue() );
+    }
+
+    /**
+     * Encodes a list of cards.
+     *
+     * @param cards the cards.
+     * @return a new array holding the packed representation of each card, in the same order.
+     * @throws IllegalArgumentException if any of the cards can not be encoded.
+     */
+    public static int[] encode( List<Card> cards )
+    {
+        int[] hand = new int[cards.size()];
+        for (int i = 0; i < hand.length; i++)
+        {
+            hand[i] = encode( cards.get( i ));
+        }
+        return hand;
+    }
+
+    /**
+     * Tells whether a card can be encoded by this class.
+     *
+     * @param card the card
+     * @return true if {@link #encode(Card)} would succeed.
+     */
+    public static boolean canEncode( Card card )
+    {
+        int suit = card.getSuit(), rank = card.getValue();
+        return 0 < suit && suit < 16 && 0 <= rank && rank < RANKS && 0 != codes[suit * RANKS + rank];
+    }
+
+    /**
+     * Decodes a packed card.
+     *
+     * @param code the packed representation of a card.
+     * @return the shared {@link Card} instance it represents.
+     */
+    public static Card toCard( int code )
+    {
+        return Card.of( suitOf( code ), rankOf( code ));
+    }
+
+    /**
+     * Decodes a packed hand.
+     *
+     * @param hand the packed representations of the cards.
+     * @return an array holding the shared {@link Card} instance each code represents.
+     */
+    public static Card[] toCards( int[] hand )
+    {
+        Card[] cards = new Card[hand.length];
+        for (int i = 0; i < hand.length; i++)
+        {
+            cards[i] = toCard( hand[i] );
+        }
+        return cards;
+    }
+
+    /**
+     * @param code the packed representation of a card.
+     * @return the rank of the card, from 0 to 12.
+     */
+    public static int rankOf( int code )
+    {
+        return (code >>> RANK_SHIFT) & 0xF;
+    }
+
+    /**
+     * @param code the packed representation of a card.
+     * @return the suit of the card; 1, 2, 4 or 8.
+     */
+    public static int suitOf( int code )
+    {
+        return (code >>> SUIT_SHIFT) & 0xF;
+    }
+
+    /**
+     * @param code the packed representation of a card.
+     * @return the prime number assigned to the rank of the card.
+     */
+    public static int primeOf( int code )
+    {
+        return code & 0x3F;
+    }
+
+    /**
+     * @param code the packed representation of a card.
+     * @return a mask with the single bit for the rank of the card set; bit 0 for the lowest rank.
+     */
+    public static int rankBitOf( int code )
+    {
+        return code >>> BITS_SHIFT;
+    }
+}
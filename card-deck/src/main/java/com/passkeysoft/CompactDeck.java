@@ -0,0 +1,201 @@
+package com.passkeysoft;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A {@link Deck} of no more than 64 cards, which keeps the cards held by each owner as a single
+ * <b>long</b> bitmask. Internally bit <i>n</i> of an owner's mask is set when the owner holds the
+ * card at position <i>n</i> of the dealing order, so dealing, returning a hand, counting a hand
+ * and testing membership are a handful of bit operations.
+ * <p>
+ * Apart from the size limit a CompactDeck behaves exactly like a {@link Deck}, so it can be
+ * used anywhere a Deck is. Evaluators that want to work on the masks directly can get them
+ * from {@link CompactDeck#getOwnerMask(int)}, by card rather than by position: bit <i>n</i>
+ * stands for the card in slot <i>n</i> of {@link Deck#cardList} whatever the dealing order, so
+ * a table indexed by slot gives the rank and suit of each bit. {@link CompactDeck#getCards(long)}
+ * turns a mask back into cards.
+ */
+@SuppressWarnings({"UnusedReturnValue", "WeakerAccess"})
+public class CompactDeck extends Deck
+{
+    /**
+     * The largest number of cards a CompactDeck can hold.
+     */
+    public static final int MAX_CARDS = 64;
+
+    // Decks rarely have more than a handful of owners, so a linear search of two parallel
+    // arrays beats hashing (and boxing) the owner.
+    private int[] maskOwners = new int[8];
+    private long[] masks = new long[8];
+    private int numMasks = 0;
+
+    /**
+     * Gets the bitmask of the cards held by an owner. Bit <i>n</i> is set if the owner holds the
+     * card in slot <i>n</i> of {@link Deck#cardList}, so each bit always stands for the same card,
+     * however the deck is shuffled.
+     *
+     * @param owner the owner
+     * @return the owner's bitmask, or zero if the owner holds no cards.
+     */
+    public long getOwnerMask( int owner )
+    {
+        index();
+        int index = slotOf( owner );
+        long mask = 0;
+        if (0 <= index)
+        {
+            for (long bits = masks[index]; 0 != bits; bits &= bits - 1)
+            {
+                mask |= 1L << slotAt( Long.numberOfTrailingZeros( bits ));
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Translates a bitmask obtained from {@link CompactDeck#getOwnerMask(int)} back into cards.
+     *
+     * @param mask the bitmask
+     * @return a new {@link List} of the cards whose bits are set, in the order they were added
+     * to the deck.
+     */
+    public List<Card> getCards( long mask )
+    {
+        List<Card> cards = new ArrayList<>( Long.bitCount( mask ));
+        for (long bits = mask; 0 != bits; bits &= bits - 1)
+        {
+            cards.add( cardList.get( Long.numberOfTrailingZeros( bits )));
+        }
+        return cards;
+    }
+
+    /**
+     * @param owner the owner
+     * @return the number of cards held by the owner
+     */
+    public int countHand( int owner )
+    {
+        index();
+        return countHoldings( owner );
+    }
+
+    /**
+     * Tests whether an owner holds a card.
+     *
+     * @param owner the owner
+     * @param slot  the slot of the card in {@link Deck#cardList}
+     * @return true if the owner holds the card.
+     */
+    public boolean holds( int owner, int slot )
+    {
+        return 0 <= slot && slot < MAX_CARDS
+            && 0 != (getOwnerMask( owner ) & (1L << slot));
+    }
+
+    @Override
+    public CompactDeck fork()
+    {
+        CompactDeck copy = (CompactDeck) super.fork();
+        copy.maskOwners = maskOwners.clone();
+        copy.masks = masks.clone();
+        return copy;
+    }
+
+    @Override
+    protected void clearHoldings()
+    {
+        numMasks = 0;
+    }
+
+    @Override
+    protected void holdAll( int count )
+    {
+        if (count > MAX_CARDS)
+            throw new IllegalStateException( "A CompactDeck cannot hold more than " + MAX_CARDS + " cards" );
+        numMasks = 1;
+        maskOwners[0] = 0;
+        masks[0] = (MAX_CARDS == count) ? -1L : (1L << count) - 1;
+    }
+
+    @Override
+    protected void addHolding( int owner, int position )
+    {
+        if (position >= MAX_CARDS)
+            throw new IllegalStateException( "A CompactDeck cannot hold more than " + MAX_CARDS + " cards" );
+        int slot = slotFor( owner );
+        masks[slot] |= 1L << position;
+    }
+
+    @Override
+    protected void removeHolding( int owner, int position )
+    {
+        int slot = slotOf( owner );
+        if (0 <= slot)
+            masks[slot] &= ~(1L << position);
+    }
+
+    @Override
+    protected int nextHolding( int owner, int fromPosition )
+    {
+        int slot = slotOf( owner );
+        if (0 > slot || fromPosition >= MAX_CARDS)
+            return -1;
+        long bits = masks[slot] & (-1L << fromPosition);
+        return (0 == bits) ? -1 : Long.numberOfTrailingZeros( bits );
+    }
+
+    @Override
+    protected int countHoldings( int owner )
+    {
+        int slot = slotOf( owner );
+        return (0 > slot) ? 0 : Long.bitCount( masks[slot] );
+    }
+
+    @Override
+    protected void moveHoldings( int oldOwner, int newOwner )
+    {
+        int slot = slotOf( oldOwner );
+        if (0 > slot)
+            return;
+        long bits = masks[slot];
+        masks[slot] = 0;
+        slot = slotFor( newOwner );
+        masks[slot] |= bits;
+    }
+
+    private int slotOf( int owner )
+    {
+        for (int i = 0; i < numMasks; i++)
+        {
+            if (maskOwners[i] == owner)
+                return i;
+        }
+        return -1;
+    }
+
+    private int slotFor( int owner )
+    {
+        int slot = slotOf( owner );
+        if (0 <= slot)
+            return slot;
+        if (numMasks == maskOwners.length)
+        {
+            // reuse the slot of an owner who no longer holds anything before growing
+            for (int i = 0; i < numMasks; i++)
+            {
+                if (0 == masks[i])
+                {
+                    maskOwners[i] = owner;
+                    return i;
+                }
+            }
+            maskOwners = Arrays.copyOf( maskOwners, numMasks * 2 );
+            masks = Arrays.copyOf( masks, numMasks * 2 );
+        }
+        maskOwners[numMasks] = owner;
+        masks[numMasks] = 0;
+        return numMasks++;
+    }
+}
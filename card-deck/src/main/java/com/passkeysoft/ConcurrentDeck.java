@@ -0,0 +1,669 @@
+package com.passkeysoft;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A {@link Deck} which may be used by several threads at once without any external locking.
+ * <p>
+ * The owner of every card is held in an atomic array, and dealing, discarding and returning
+ * cards change owners with compare-and-set operations, so no thread ever waits for another.
+ * Two threads can never deal the same card. Methods which read several cards, such as
+ * {@link ConcurrentDeck#getHandByOwner(int)} and {@link ConcurrentDeck#getHandsByOwner(int[])},
+ * work from a snapshot: if the deck changes while the snapshot is being taken, the snapshot is
+ * taken again, a few times, rather than blocking the threads making the changes. Should the deck
+ * still be changing after the last attempt, the last reading is used: each card in it has exactly
+ * one owner, but cards changed during the reading may be seen before or after their change.
+ * <p>
+ * Methods which change many cards, such as {@link Deck#dealNewHandToPlayer(int, int)},
+ * {@link ConcurrentDeck#returnHandFromOwner(int, int)} and {@link ConcurrentDeck#reset()}, change
+ * each card atomically, but not all of them at once. Shuffles are serialized with each other,
+ * but never block dealing.
+ * <p>
+ * The change journal and listeners work as they do for a {@link Deck}, except that changes are
+ * only numbered while there is a journal or a listener; recording a change takes a brief lock.
+ * Listeners are called on whichever thread made the change.
+ * <p>
+ * The cards of a ConcurrentDeck are fixed when it is created; cards added to
+ * {@link Deck#cardList} afterwards are ignored.
+ */
+@SuppressWarnings({"UnusedReturnValue", "WeakerAccess"})
+public class ConcurrentDeck extends Deck
+{
+    private static final int SNAPSHOT_ATTEMPTS = 8;
+
+    // All fixed at construction, and shared with forks. The slots holding each card are found
+    // by suit and value for ordinary cards, as in Deck.
+    private final Card[] cards;
+    private final int[][] denseSlots = new int[DENSE_SUITS * DENSE_VALUES][];
+    private final HashMap<Card, int[]> sparseSlots = new HashMap<>(  );
+
+    /**
+     * The state of each card, indexed by its slot in the card list: the number of the change
+     * which gave the card its owner in the high 32 bits, and the owner in the low 32 bits. The
+     * change numbers give the order of the discard pile. Only their low 32 bits are kept, so they
+     * are compared by their distance back from the latest change, which is correct across the
+     * wrap for any two changes less than 2^31 apart.
+     */
+    private AtomicLongArray states;
+
+    /**
+     * Every change takes a number from started before it changes a state, and counts itself in
+     * completed afterwards. A reader which sees no change in flight before reading, and no new
+     * change started after, has read a consistent snapshot.
+     */
+    private AtomicLong started = new AtomicLong(  );
+    private AtomicLong completed = new AtomicLong(  );
+
+    private AtomicReference<Order> order;
+    // the order the cards were added in, republished by reset(long) and recycle()
+    private Order identity;
+    private Object shuffleLock = new Object();
+
+    /**
+     * A dealing order. Never modified once published, but for its dealing hint; a shuffle
+     * publishes a new one.
+     */
+    private static final class Order
+    {
+        final int[] slots;          // position -> slot
+        final int[] positions;      // slot -> position
+
+        /**
+         * A hint for dealing: no card at a lower position is owned by the deck. The position is
+         * in the low 32 bits; the high 32 bits count the cards returned to the deck, so a dealer
+         * cannot move the hint past a card returned while it was searching.
+         */
+        final AtomicLong cursor = new AtomicLong(  );
+
+        Order( int[] slots )
+        {
+            this.slots = slots;
+            positions = new int[slots.length];
+            for (int position = 0; position < slots.length; position++)
+            {
+                positions[slots[position]] = position;
+            }
+        }
+
+        /**
+         * Moves the dealing hint back to the first position, as though every card had been
+         * returned to the deck.
+         */
+        void rewind()
+        {
+            cursor.updateAndGet( c -> (c + (1L << 32)) & ~0xFFFFFFFFL );
+        }
+    }
+
+    /**
+     * Instantiates a new ConcurrentDeck holding the same cards as a deck, in the order they were
+     * added to it, all owned by the new deck. The new deck uses the faces of the other deck.
+     *
+     * @param deck the deck to be copied. Its state (who holds each card) is ignored.
+     */
+    public ConcurrentDeck( Deck deck )
+    {
+        cardList.addAll( deck.cardList );
+        cards = cardList.toArray( new Card[0] );
+        int[] slots = new int[cards.length];
+        for (int slot = 0; slot < cards.length; slot++)
+        {
+            slots[slot] = slot;
+            int[] same = slotsOf( cards[slot] );
+            same = (null == same) ? new int[1] : Arrays.copyOf( same, same.length + 1 );
+            same[same.length - 1] = slot;
+            int dense = denseIndexOf( cards[slot] );
+            if (0 > dense)
+                sparseSlots.put( cards[slot], same );
+            else
+                denseSlots[dense] = same;
+        }
+        states = new AtomicLongArray( cards.length );
+        identity = new Order( slots );
+        order = new AtomicReference<>( identity );
+        useFacesOf( deck );
+    }
+
+    /**
+     * @return the slots holding a card, or null if the deck doesn't hold it.
+     */
+    private int[] slotsOf( Card card )
+    {
+        int dense = denseIndexOf( card );
+        return (0 > dense) ? sparseSlots.get( card ) : denseSlots[dense];
+    }
+
+    static long state( long change, int owner )
+    {
+        return (change << 32) | (owner & 0xFFFFFFFFL);
+    }
+
+    private static int ownerOf( long state )
+    {
+        return (int) state;
+    }
+
+    private static int changeOf( long state )
+    {
+        return (int) (state >>> 32);
+    }
+
+    /**
+     * @param snapshot the state of every card.
+     * @param latest   the number of the latest change, read after the snapshot, so that no change
+     *                 in it is later.
+     * @return the slots of the discards in a snapshot, the most recent first.
+     */
+    static List<Integer> discardsOf( long[] snapshot, int latest )
+    {
+        List<Integer> discards = new ArrayList<>(  );
+        for (int slot = 0; slot < snapshot.length; slot++)
+        {
+            if (DISCARD == ownerOf( snapshot[slot] ))
+                discards.add( slot );
+        }
+        discards.sort( Comparator.comparingInt( (Integer slot) -> latest - changeOf( snapshot[slot] )));
+        return discards;
+    }
+
+    /**
+     * Changes the owner of a card, provided its state has not changed since it was read.
+     *
+     * @return true if the owner was changed
+     */
+    private boolean change( int slot, long expected, int newOwner )
+    {
+        boolean changed = states.compareAndSet( slot, expected,
+            state( started.incrementAndGet(), newOwner ));
+        completed.incrementAndGet();
+        if (changed && isJournaling())
+            recordChange( cards[slot], ownerOf( expected ), newOwner );
+        if (changed && 0 == newOwner)
+        {
+            // the card may now lie below the dealing hint
+            Order current = order.get();
+            int position = current.positions[slot];
+            current.cursor.updateAndGet( c ->
+                (c + (1L << 32)) & ~0xFFFFFFFFL | Math.min( (int) c, position ));
+        }
+        return changed;
+    }
+
+    /**
+     * Reads the state of every card. If the deck changes while it is being read, it is read
+     * again, up to SNAPSHOT_ATTEMPTS times; after that the last reading is used, in which each
+     * card still has exactly one owner.
+     */
+    private long[] snapshot()
+    {
+        long[] snapshot = new long[cards.length];
+        for (int attempt = 1; ; attempt++)
+        {
+            long before = started.get();
+            boolean quiet = completed.get() == before;
+            for (int slot = 0; slot < snapshot.length; slot++)
+            {
+                snapshot[slot] = states.get( slot );
+            }
+            if ((quiet && started.get() == before) || attempt == SNAPSHOT_ATTEMPTS)
+                return snapshot;
+            Thread.yield();
+        }
+    }
+
+    /**
+     * Takes the first card in the dealing order which is owned by the deck and, if suit is not
+     * null, is of the requested suit.
+     *
+     * @return the card taken, or null if there is none.
+     */
+    private Card take( int newOwner, Integer suit )
+    {
+        Order current = order.get();
+        long cursor = current.cursor.get();
+        boolean advance = true;
+        for (int position = (int) cursor; position < cards.length; position++)
+        {
+            int slot = current.slots[position];
+            long state = states.get( slot );
+            if (0 != ownerOf( state ))
+                continue;
+            if (advance && position != (int) cursor)
+                current.cursor.compareAndSet( cursor, cursor & ~0xFFFFFFFFL | position );
+            advance = false;
+            if (null != suit && cards[slot].getSuit() != suit)
+                continue;
+            if (change( slot, state, newOwner ))
+                return cards[slot];
+            position--;     // somebody else changed it first; look again
+        }
+        return null;
+    }
+
+    /**
+     * Finds the copy of a card to be discarded or reported: a copy held by a player is
+     * preferred, then one still in the deck, and a discarded copy only as a last resort.
+     *
+     * @return the slot of the card, or -1 if it is not part of this deck.
+     */
+    private int slotOf( Card card )
+    {
+        int[] slots = (null == card) ? null : slotsOf( card );
+        if (null == slots)
+            return -1;
+        int best = -1;
+        int bestRank = 3;
+        for (int slot : slots)
+        {
+            int owner = ownerOf( states.get( slot ));
+            int rank = (DISCARD == owner) ? 2 : (0 == owner) ? 1 : 0;
+            if (rank < bestRank)
+            {
+                best = slot;
+                bestRank = rank;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return the slot of a copy of a card held by a given owner, or -1 if it holds none.
+     */
+    private int slotOf( Card card, int owner )
+    {
+        int[] slots = (null == card) ? null : slotsOf( card );
+        if (null != slots)
+        {
+            for (int slot : slots)
+            {
+                if (ownerOf( states.get( slot )) == owner)
+                    return slot;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int getOwnerOf( Card card )
+    {
+        int slot = slotOf( card );
+        return (0 > slot) ? -1 : ownerOf( states.get( slot ));
+    }
+
+    @Override
+    public Card dealCardTo( int playerNum )
+    {
+        return take( playerNum, null );
+    }
+
+    @Override
+    public Card dealCardToPlayerBySuit( int playerNum, int suit )
+    {
+        return take( playerNum, suit );
+    }
+
+    @Override
+    public Card burnCard()
+    {
+        return take( DISCARD, null );
+    }
+
+    @Override
+    public List<List<Card>> dealRound( int[] players, int cardsEach )
+    {
+        List<List<Card>> hands = new ArrayList<>( players.length );
+        for (int player : players)
+        {
+            List<Card> hand = new ArrayList<>( cardsEach );
+            for (int i = 0; i < cardsEach; i++)
+            {
+                Card card = take( player, null );
+                if (null == card)
+                    break;
+                hand.add( card );
+            }
+            hands.add( hand );
+        }
+        return hands;
+    }
+
+    @Override
+    public List<List<Card>> dealRoundRobin( int[] players, int cardsEach )
+    {
+        List<List<Card>> hands = new ArrayList<>( players.length );
+        for (int i = 0; i < players.length; i++)
+        {
+            hands.add( new ArrayList<>( cardsEach ));
+        }
+        for (int n = 0; n < players.length * cardsEach; n++)
+        {
+            Card card = take( players[n % players.length], null );
+            if (null == card)
+                break;
+            hands.get( n % players.length ).add( card );
+        }
+        return hands;
+    }
+
+    @Override
+    public Deck discard( Card card )
+    {
+        for (;;)
+        {
+            int slot = slotOf( card );
+            if (0 > slot)
+                return this;
+            long state = states.get( slot );
+            if (change( slot, state, DISCARD ))
+                return this;
+        }
+    }
+
+    @Override
+    public Deck discard( Card card, int owner )
+    {
+        for (;;)
+        {
+            int slot = slotOf( card, owner );
+            if (0 > slot)
+                return this;
+            long state = states.get( slot );
+            if (owner == ownerOf( state ) && change( slot, state, DISCARD ))
+                return this;
+        }
+    }
+
+    @Override
+    public void returnHandFromOwner( int oldOwner, int newOwner )
+    {
+        if (oldOwner == newOwner)
+            return;
+        // in dealing order, so returned cards are discarded in the same order as Deck does
+        int[] slots = order.get().slots;
+        for (int slot : slots)
+        {
+            long state = states.get( slot );
+            while (ownerOf( state ) == oldOwner && !change( slot, state, newOwner ))
+            {
+                state = states.get( slot );
+            }
+        }
+    }
+
+    @Override
+    public List<Card> getHandByOwner( int owner )
+    {
+        return getHandsByOwner( new int[] { owner } ).get( 0 );
+    }
+
+    @Override
+    public int[] getEncodedHand( int owner )
+    {
+        return CardCodec.encode( getHandByOwner( owner ));
+    }
+
+    @Override
+    public int getEncodedHand( int owner, int[] hand, int offset )
+    {
+        List<Card> cards = getHandByOwner( owner );
+        for (int i = 0; i < cards.size(); i++)
+        {
+            hand[offset + i] = CardCodec.encode( cards.get( i ));
+        }
+        return cards.size();
+    }
+
+    /**
+     * Gets the hands of several owners from a single snapshot of the deck, so no card can
+     * appear in two of the hands, nor go missing from all of them, while it changes hands.
+     *
+     * @param owners the owners
+     * @return a {@link List} of new lists of the cards held by each owner, in the same order as
+     * owners. Each hand is in the order it was dealt.
+     */
+    public List<List<Card>> getHandsByOwner( int[] owners )
+    {
+        long[] snapshot = snapshot();
+        int[] slots = order.get().slots;
+        List<List<Card>> hands = new ArrayList<>( owners.length );
+        for (int i = 0; i < owners.length; i++)
+        {
+            hands.add( new ArrayList<>(  ));
+        }
+        for (int slot : slots)
+        {
+            int owner = ownerOf( snapshot[slot] );
+            for (int i = 0; i < owners.length; i++)
+            {
+                if (owners[i] == owner)
+                    hands.get( i ).add( cards[slot] );
+            }
+        }
+        return hands;
+    }
+
+    @Override
+    public List<Card> getDiscards()
+    {
+        long[] snapshot = snapshot();
+        List<Integer> discards = discardsOf( snapshot, (int) started.get() );
+        List<Card> hand = new ArrayList<>( discards.size() );
+        for (int slot : discards)
+        {
+            hand.add( cards[slot] );
+        }
+        return hand;
+    }
+
+    @Override
+    public Card getMatchingCard( Card cardToMatch, int playerNum )
+    {
+        int slot = slotOf( cardToMatch, playerNum );
+        return (0 > slot) ? null : cards[slot];
+    }
+
+    @Override
+    protected void shuffle( RandomSource random )
+    {
+        synchronized (shuffleLock)
+        {
+            // Only the cards owned by the deck move. Should one of them be dealt meanwhile,
+            // the new order is still a valid order, and the card is simply no longer available.
+            long[] snapshot = snapshot();
+            int[] slots = order.get().slots.clone();
+            int[] undealt = new int[slots.length];
+            int count = 0;
+            for (int position = 0; position < slots.length; position++)
+            {
+                if (0 == ownerOf( snapshot[slots[position]] ))
+                    undealt[count++] = position;
+            }
+            for (int i = count - 1; i > 0; i--)
+            {
+                int a = undealt[i];
+                int b = undealt[random.nextInt( i + 1 )];
+                int slot = slots[a];
+                slots[a] = slots[b];
+                slots[b] = slot;
+            }
+            order.set( new Order( slots ));
+        }
+    }
+
+    @Override
+    public void shuffleCustom( Comparator<Card> comparator )
+    {
+        synchronized (shuffleLock)
+        {
+            RandomSource random = getRandomSource();
+            long[] keys = new long[cards.length];
+            Integer[] slots = new Integer[cards.length];
+            for (int slot = 0; slot < cards.length; slot++)
+            {
+                keys[slot] = random.nextLong();
+                slots[slot] = slot;
+            }
+            Arrays.sort( slots, Comparator.comparing( (Integer slot) -> cards[slot], comparator )
+                .thenComparingLong( slot -> keys[slot] ));
+            int[] newOrder = new int[cards.length];
+            for (int position = 0; position < cards.length; position++)
+            {
+                newOrder[position] = slots[position];
+            }
+            order.set( new Order( newOrder ));
+        }
+    }
+
+    @Override
+    public void reset()
+    {
+        returnAllCards();
+        shuffle();
+    }
+
+    private void returnAllCards()
+    {
+        for (int slot = 0; slot < cards.length; slot++)
+        {
+            long state = states.get( slot );
+            while (0 != ownerOf( state ) && !change( slot, state, 0 ))
+            {
+                state = states.get( slot );
+            }
+        }
+    }
+
+    @Override
+    public synchronized Deck setJournalCapacity( int capacity )
+    {
+        return super.setJournalCapacity( capacity );
+    }
+
+    @Override
+    public synchronized long getSequence()
+    {
+        return super.getSequence();
+    }
+
+    @Override
+    public synchronized List<Change> getChangesSince( long sequence )
+    {
+        return super.getChangesSince( sequence );
+    }
+
+    @Override
+    protected synchronized void recordChange( Card card, int oldOwner, int newOwner )
+    {
+        super.recordChange( card, oldOwner, newOwner );
+    }
+
+    @Override
+    int[][] captureState()
+    {
+        long[] snapshot = snapshot();
+        int[] owners = new int[cards.length];
+        for (int slot = 0; slot < cards.length; slot++)
+        {
+            owners[slot] = ownerOf( snapshot[slot] );
+        }
+        // the oldest discard first
+        List<Integer> discards = discardsOf( snapshot, (int) started.get() );
+        int[] discardSlots = new int[discards.size()];
+        for (int i = 0; i < discardSlots.length; i++)
+        {
+            discardSlots[i] = discards.get( discardSlots.length - 1 - i );
+        }
+        return new int[][] { order.get().slots.clone(), owners, discardSlots };
+    }
+
+    @Override
+    void restoreState( int[] order, int[] owners, int[] discards )
+    {
+        synchronized (shuffleLock)
+        {
+            this.order.set( new Order( order.clone() ));
+            for (int slot = 0; slot < cards.length; slot++)
+            {
+                int oldOwner = ownerOf( states.get( slot ));
+                if (oldOwner != owners[slot] && isJournaling())
+                    recordChange( cards[slot], oldOwner, owners[slot] );
+                if (DISCARD != owners[slot])
+                    states.set( slot, state( started.incrementAndGet(), owners[slot] ));
+                completed.incrementAndGet();
+            }
+            // discards last, so their change numbers put them back in order
+            for (int slot : discards)
+            {
+                states.set( slot, state( started.incrementAndGet(), DISCARD ));
+                completed.incrementAndGet();
+            }
+        }
+    }
+
+    @Override
+    public void reset( long seed )
+    {
+        synchronized (shuffleLock)
+        {
+            returnAllCards();
+            identity.rewind();
+            order.set( identity );
+            shuffle( seed );
+        }
+    }
+
+    @Override
+    public void recycle()
+    {
+        synchronized (shuffleLock)
+        {
+            super.recycle();
+            // Nothing else uses a deck while it is recycled, and the journal has been emptied, so
+            // the cards are simply given back, and the change numbers start again.
+            for (int slot = 0; slot < cards.length; slot++)
+            {
+                states.set( slot, 0L );
+            }
+            started.set( 0 );
+            completed.set( 0 );
+            identity.rewind();
+            order.set( identity );
+        }
+    }
+
+    @Override
+    public ConcurrentDeck fork()
+    {
+        ConcurrentDeck copy = (ConcurrentDeck) super.fork();
+        long[] snapshot = snapshot();
+        // read once, so the copy starts quiet, with as many changes completed as started
+        long changes = started.get();
+        copy.states = new AtomicLongArray( snapshot );
+        copy.started = new AtomicLong( changes );
+        copy.completed = new AtomicLong( changes );
+        copy.identity = new Order( identity.slots );
+        copy.order = new AtomicReference<>( (order.get() == identity) ? copy.identity
+                                                                      : new Order( order.get().slots ));
+        copy.shuffleLock = new Object();
+        return copy;
+    }
+
+    @Override
+    public String toString()
+    {
+        int[] slots = order.get().slots;
+        List<Card> all = new ArrayList<>( slots.length );
+        for (int slot : slots)
+        {
+            all.add( cards[slot] );
+        }
+        return buildHandAsJSON( all, "" );
+    }
+}
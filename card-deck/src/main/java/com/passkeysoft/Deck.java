@@ -1,17 +1,26 @@
 package com.passkeysoft;
 
-import java.security.SecureRandom;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
-import java.util.TreeMap;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
- * A class representing a deck of cards
+ * A class representing a deck of cards. The {@link Card}s themselves are immutable and may be
+ * shared with other decks; everything that changes during a game (who holds each card, the
+ * order of the cards and the order of the discards) is kept in primitive arrays inside the deck.
  */
 @SuppressWarnings({"UnusedReturnValue", "WeakerAccess"})
-public class Deck
+public class Deck implements Cloneable
 {
     /**
      * Used to indicate that a card has been discarded.
@@ -19,10 +28,58 @@ public class Deck
     public static final int DISCARD = 65535;
 
     /**
-     * A list of all the cards in this deck.
+     * A list of all the cards in this deck, in the order they were added. Shuffling and dealing
+     * never rearrange this list; the order in which cards are dealt is kept separately. A card's
+     * index in this list is its <i>slot</i>. Sub-classes may append new cards directly to this
+     * list (typically obtained from {@link Card#of(int, int)}); they join the bottom of the deck,
+     * owned by the deck, the next time the deck is used. Cards must never be removed.
      */
     protected List<Card> cardList = new ArrayList<>(  );
 
+    /*
+     * Per-deck state, indexed by slot or by position. A position is a place in the dealing
+     * order: the undealt card with the lowest position is the next one dealt.
+     */
+    private int numCards = 0;               // the number of slots that have been indexed
+    private int[] owners = new int[0];      // slot -> owner
+    private int[] order = new int[0];       // position -> slot
+    private int[] positions = new int[0];   // slot -> position
+
+    /**
+     * The slots of the discarded cards in the order they were discarded; the most recent discard
+     * is on top.
+     */
+    private int[] discardPile = new int[0];
+    private int discardCount = 0;
+
+    /**
+     * Finds the slots holding a given card. The first slot of a card with a small suit and value
+     * (which covers every ordinary deck) is found in a table indexed by suit and value, so no
+     * hashing is needed; any other card is found in a map. A deck may hold several copies of the
+     * same card, so each slot links to the next slot holding an equal card, ending with -1.
+     */
+    static final int DENSE_SUITS = 16;
+    static final int DENSE_VALUES = 64;
+    private int[] denseFirstSlot = newDenseIndex();
+    private HashMap<Card, Integer> sparseFirstSlot = new HashMap<>(  );
+    private int[] nextSameSlot = new int[0];
+
+    // Set when the identity index or the faces are shared with a fork; whichever deck changes
+    // them first takes its own copy.
+    private boolean identityShared = false;
+    private boolean facesShared = false;
+
+    /**
+     * The owner index. Maps each owner to the set of positions of the cards it holds, so a hand
+     * can be found without visiting every card in the deck. Because the bits are positions,
+     * iterating a hand returns its cards in the order they were dealt. Sub-classes may replace
+     * this representation by overriding the owner index primitives
+     * ({@link Deck#addHolding(int, int)} and friends).
+     */
+    private HashMap<Integer, BitSet> holdings = new HashMap<>(  );
+    private int lastOwner;
+    private BitSet lastHoldings = null;
+
     /**
      * a card Face object which includes an image file name and a description.
      */
@@ -58,90 +115,866 @@ public class Deck
         }
     }
 
-    private TreeMap<Integer, TreeMap<Integer, Face>> deckFaces = new TreeMap<>(  );
-    private SecureRandom random = new SecureRandom();
+    /**
+     * A change of owner of a single card, as recorded in the journal of a deck.
+     *
+     * @see Deck#getChangesSince(long)
+     */
+    public static class Change
+    {
+        /**
+         * The sequence number of the change. Each change of owner in a deck is numbered one
+         * more than the last.
+         */
+        public final long sequence;
+
+        /**
+         * The card which changed hands.
+         */
+        public final Card card;
+
+        /**
+         * The owner of the card before the change.
+         */
+        public final int oldOwner;
+
+        /**
+         * The owner of the card after the change.
+         */
+        public final int newOwner;
+
+        /**
+         * Instantiates a new Change.
+         *
+         * @param sequence the sequence number of the change
+         * @param card     the card which changed hands
+         * @param oldOwner the owner of the card before the change
+         * @param newOwner the owner of the card after the change
+         */
+        public Change( long sequence, Card card, int oldOwner, int newOwner )
+        {
+            this.sequence = sequence;
+            this.card = card;
+            this.oldOwner = oldOwner;
+            this.newOwner = newOwner;
+        }
+
+        @Override
+        public String toString()
+        {
+            return sequence + ": " + card + " " + oldOwner + " -> " + newOwner;
+        }
+    }
+
+    /**
+     * Card faces for small, non-negative suits and values are kept in a dense table indexed by
+     * suit and then value, which covers every ordinary deck. Anything else (negative or very
+     * large suits or values) falls back to a map keyed by both.
+     */
+    private static final int DENSE_FACE_LIMIT = 64;
+    private Face[][] denseFaces = new Face[0][];
+    private HashMap<Long, Face> sparseFaces = null;
+
+    /**
+     * The JSON rendered for each card, per face path. Replaced whenever a face is added, and
+     * shared with forks until then, so it is never cleared in place.
+     */
+    private static final int MAX_FRAGMENT_PATHS = 16;
+    private ConcurrentHashMap<String, ConcurrentHashMap<Card, Fragment>> fragments =
+        new ConcurrentHashMap<>(  );
+
+    private RandomSource random = RandomSource.secure();
+    private int[] shuffled = new int[0];
+
+    /**
+     * The change journal: a ring buffer of the most recent changes of owner, indexed by
+     * sequence number modulo its (power of two) capacity. Null while the journal is disabled.
+     */
+    private long lastSequence = 0;
+    private long journalFloor = 0;      // the journal holds no changes at or before this one
+    private Card[] journalCards = null;
+    private int[] journalOldOwners;
+    private int[] journalNewOwners;
+    private List<DeckListener> listeners = new CopyOnWriteArrayList<>(  );
+
+    /**
+     * Add a {@link Card} to this deck. The card is the shared instance from
+     * {@link Card#of(int, int)}.
+     *
+     * @param suit  the suit of the new card
+     * @param value the face value of the new card
+     * @return this instance, suitable for fluent-style programming.
+     */
+    protected Deck addCard( int suit, int value )
+    {
+        cardList.add( Card.of( suit, value ));
+        return this;
+    }
+
+    /**
+     * Adds a {@link Deck.Face} object associated with a specific card to the internal Face map.
+     * Consistent with Java maps, if the reference already exists it will be replaced.
+     * The JSON for a card is cached, so to change a face replace it here rather than modifying
+     * the {@link Deck.Face} object itself.
+     * <p>
+     * This method is protected, so only derived sub-classes can add a face reference.
+     *
+     * @param card the reference card
+     * @param face the {@link Deck.Face} object to be associated with the reference card.
+     * @return this instance, suitable for fluent-style programming.
+     */
+    protected Deck addFace( Card card, Face face )
+    {
+        if (facesShared)
+        {
+            denseFaces = denseFaces.clone();
+            for (int suit = 0; suit < denseFaces.length; suit++)
+            {
+                if (null != denseFaces[suit])
+                    denseFaces[suit] = denseFaces[suit].clone();
+            }
+            if (null != sparseFaces)
+                sparseFaces = new HashMap<>( sparseFaces );
+            facesShared = false;
+        }
+        fragments = new ConcurrentHashMap<>(  );
+        int suit = card.getSuit();
+        int value = card.getValue();
+        if (isDenseFace( suit, value ))
+        {
+            if (suit >= denseFaces.length)
+                denseFaces = Arrays.copyOf( denseFaces, suit + 1 );
+            Face[] suitFaces = denseFaces[suit];
+            if (null == suitFaces)
+                denseFaces[suit] = suitFaces = new Face[value + 1];
+            else if (value >= suitFaces.length)
+                denseFaces[suit] = suitFaces = Arrays.copyOf( suitFaces, value + 1 );
+            suitFaces[value] = face;
+        }
+        else
+        {
+            if (null == sparseFaces)
+                sparseFaces = new HashMap<>(  );
+            sparseFaces.put( faceKey( suit, value ), face );
+        }
+        return this;
+    }
+
+    /**
+     * Makes this deck use the same faces as another deck. The faces are shared until either
+     * deck adds a face.
+     *
+     * @param other the deck whose faces will be used
+     */
+    protected void useFacesOf( Deck other )
+    {
+        denseFaces = other.denseFaces;
+        sparseFaces = other.sparseFaces;
+        fragments = other.fragments;
+        facesShared = other.facesShared = true;
+    }
+
+    /**
+     * Gets the {@link Deck.Face} object associated with the reference card
+     *
+     * @param card the reference card
+     * @return the associated {@link Deck.Face} object
+     */
+    public Face getFace( Card card )
+    {
+        int suit = card.getSuit();
+        int value = card.getValue();
+        if (isDenseFace( suit, value ))
+        {
+            if (suit < denseFaces.length)
+            {
+                Face[] suitFaces = denseFaces[suit];
+                if (null != suitFaces && value < suitFaces.length)
+                    return suitFaces[value];
+            }
+            return null;
+        }
+        return (null == sparseFaces) ? null : sparseFaces.get( faceKey( suit, value ));
+    }
+
+    private static boolean isDenseFace( int suit, int value )
+    {
+        return 0 <= suit && suit < DENSE_FACE_LIMIT && 0 <= value && value < DENSE_FACE_LIMIT;
+    }
+
+    private static long faceKey( int suit, int value )
+    {
+        return ((long) suit << 32) | (value & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Brings the per-deck state up to date with the card list. Normally this only has to add
+     * the cards a sub-class has appended since the last call. Every public method calls this
+     * before using the deck's state, and sub-classes reading that state directly should too.
+     */
+    protected void index()
+    {
+        int size = cardList.size();
+        if (size == numCards)
+            return;
+        if (identityShared)
+        {
+            denseFirstSlot = denseFirstSlot.clone();
+            sparseFirstSlot = new HashMap<>( sparseFirstSlot );
+            nextSameSlot = nextSameSlot.clone();
+            identityShared = false;
+        }
+        if (size < numCards)
+        {
+            // cards have been removed from the list; start over with the deck owning everything
+            numCards = 0;
+            discardCount = 0;
+            Arrays.fill( denseFirstSlot, -1 );
+            sparseFirstSlot.clear();
+            clearHoldings();
+        }
+        if (owners.length < size)
+        {
+            int capacity = Math.max( size, 2 * owners.length );
+            owners = Arrays.copyOf( owners, capacity );
+            order = Arrays.copyOf( order, capacity );
+            positions = Arrays.copyOf( positions, capacity );
+            nextSameSlot = Arrays.copyOf( nextSameSlot, capacity );
+            discardPile = Arrays.copyOf( discardPile, capacity );
+        }
+        for (; numCards < size; numCards++)
+        {
+            int slot = numCards;
+            owners[slot] = 0;
+            order[slot] = slot;
+            positions[slot] = slot;
+            nextSameSlot[slot] = putFirstSlot( cardList.get( slot ), slot );
+            addHolding( 0, slot );
+        }
+    }
+
+    private static int[] newDenseIndex()
+    {
+        int[] index = new int[DENSE_SUITS * DENSE_VALUES];
+        Arrays.fill( index, -1 );
+        return index;
+    }
+
+    /**
+     * @return the index in the dense table of a card, or -1 if the card is not in the table.
+     */
+    static int denseIndexOf( Card card )
+    {
+        int suit = card.getSuit(), value = card.getValue();
+        return (0 <= suit && suit < DENSE_SUITS && 0 <= value && value < DENSE_VALUES)
+            ? suit * DENSE_VALUES + value : -1;
+    }
+
+    /**
+     * Makes a slot the first slot holding a card.
+     *
+     * @return the slot which was first before, or -1 if there was none.
+     */
+    private int putFirstSlot( Card card, int slot )
+    {
+        int dense = denseIndexOf( card );
+        if (0 > dense)
+        {
+            Integer previous = sparseFirstSlot.put( card, slot );
+            return (null == previous) ? -1 : previous;
+        }
+        int previous = denseFirstSlot[dense];
+        denseFirstSlot[dense] = slot;
+        return previous;
+    }
+
+    /**
+     * @return the first slot in the chain of slots holding a card, or -1 if the deck doesn't
+     * hold the card.
+     */
+    private int firstSlotOf( Card card )
+    {
+        int dense = denseIndexOf( card );
+        if (0 <= dense)
+            return denseFirstSlot[dense];
+        Integer first = sparseFirstSlot.get( card );
+        return (null == first) ? -1 : first;
+    }
+
+    /**
+     * Rebuilds the owner index from the owners and the dealing order. Required whenever the
+     * dealing order is rearranged wholesale.
+     */
+    private void reindex()
+    {
+        clearHoldings();
+        for (int position = 0; position < numCards; position++)
+        {
+            addHolding( owners[order[position]], position );
+        }
+    }
+
+    /*-----------------------------
+     * Owner index primitives. Every public method reaches the owner index through these, so a
+     * sub-class can swap in a different representation by overriding all of them together.
+     */
+
+    /**
+     * Empties the owner index.
+     */
+    protected void clearHoldings()
+    {
+        // keep the (empty) sets, so dealing the next game doesn't have to allocate new ones
+        for (BitSet bits : holdings.values())
+        {
+            bits.clear();
+        }
+    }
+
+    /**
+     * Empties the owner index, then records that the deck (owner 0) holds every position from 0
+     * up to, but not including, count.
+     *
+     * @param count the number of cards in the deck
+     */
+    protected void holdAll( int count )
+    {
+        clearHoldings();
+        if (0 < count)
+        {
+            addHolding( 0, 0 );
+            holdingsOf( 0 ).set( 0, count );
+        }
+    }
+
+    /**
+     * Records that an owner holds the card at a position in the dealing order.
+     *
+     * @param owner    the owner of the card
+     * @param position the position of the card
+     */
+    protected void addHolding( int owner, int position )
+    {
+        BitSet bits = holdingsOf( owner );
+        if (null == bits)
+        {
+            bits = new BitSet( cardList.size() );
+            holdings.put( owner, bits );
+            lastOwner = owner;
+            lastHoldings = bits;
+        }
+        bits.set( position );
+    }
+
+    /**
+     * Records that an owner no longer holds the card at a position in the dealing order.
+     *
+     * @param owner    the former owner of the card
+     * @param position the position of the card
+     */
+    protected void removeHolding( int owner, int position )
+    {
+        BitSet bits = holdingsOf( owner );
+        if (null != bits)
+            bits.clear( position );
+    }
+
+    /**
+     * @param owner        the owner whose cards are being visited
+     * @param fromPosition the first position to consider
+     * @return the lowest position at or after fromPosition of a card held by the owner,
+     * or -1 if there is none.
+     */
+    protected int nextHolding( int owner, int fromPosition )
+    {
+        BitSet bits = holdingsOf( owner );
+        return (null == bits) ? -1 : bits.nextSetBit( fromPosition );
+    }
+
+    /**
+     * @param owner the owner whose cards are being counted
+     * @return the number of cards held by the owner
+     */
+    protected int countHoldings( int owner )
+    {
+        BitSet bits = holdingsOf( owner );
+        return (null == bits) ? 0 : bits.cardinality();
+    }
+
+    /**
+     * Moves every card held by one owner to another owner, in the index only.
+     *
+     * @param oldOwner the owner giving up its cards
+     * @param newOwner the owner receiving the cards
+     */
+    protected void moveHoldings( int oldOwner, int newOwner )
+    {
+        BitSet bits = holdings.remove( oldOwner );
+        lastHoldings = null;
+        if (null == bits)
+            return;
+        BitSet newBits = holdings.get( newOwner );
+        if (null == newBits)
+            holdings.put( newOwner, bits );
+        else
+            newBits.or( bits );
+    }
+
+    private BitSet holdingsOf( int owner )
+    {
+        // Most calls come in runs for the same owner, so remember the last one looked up.
+        if (null == lastHoldings || owner != lastOwner)
+        {
+            BitSet bits = holdings.get( owner );
+            if (null == bits)
+                return null;
+            lastOwner = owner;
+            lastHoldings = bits;
+        }
+        return lastHoldings;
+    }
+
+    /**
+     * @param position a position in the dealing order
+     * @return the card at that position
+     */
+    protected Card cardAt( int position )
+    {
+        return cardList.get( order[position] );
+    }
+
+    /**
+     * @param position a position in the dealing order
+     * @return the slot (the index in {@link Deck#cardList}) of the card at that position
+     */
+    protected int slotAt( int position )
+    {
+        return order[position];
+    }
+
+    /**
+     * Changes the owner of the card at a position in the dealing order, keeping the owner
+     * index and the discard pile in step. Every change of ownership of a single card must
+     * pass through here.
+     */
+    private Card transfer( int position, int newOwner )
+    {
+        int slot = order[position];
+        int oldOwner = owners[slot];
+        removeHolding( oldOwner, position );
+        addHolding( newOwner, position );
+        owners[slot] = newOwner;
+        if (DISCARD == oldOwner)
+            removeFromDiscardPile( slot );
+        if (DISCARD == newOwner)
+            discardPile[discardCount++] = slot;
+        Card card = cardList.get( slot );
+        if (oldOwner != newOwner)
+            recordChange( card, oldOwner, newOwner );
+        return card;
+    }
+
+    private void removeFromDiscardPile( int slot )
+    {
+        for (int i = discardCount - 1; i >= 0; i--)
+        {
+            if (discardPile[i] == slot)
+            {
+                System.arraycopy( discardPile, i + 1, discardPile, i, discardCount - i - 1 );
+                discardCount--;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Finds the slot of a card. When the deck holds several copies of the card, a copy held by
+     * a player is preferred, then one still in the deck, and a discarded copy only as a last
+     * resort.
+     *
+     * @return the slot of the card, or -1 if it is not part of this deck.
+     */
+    private int slotOf( Card card )
+    {
+        int first = (null == card) ? -1 : firstSlotOf( card );
+        if (0 > first)
+            return -1;
+        int best = first;
+        for (int slot = first; slot >= 0; slot = nextSameSlot[slot])
+        {
+            int owner = owners[slot];
+            if (0 != owner && DISCARD != owner)
+                return slot;
+            if (DISCARD == owners[best])
+                best = slot;
+        }
+        return best;
+    }
+
+    /**
+     * Finds the slot of a copy of a card held by a given owner.
+     *
+     * @return the slot of the card, or -1 if the owner holds no copy of it.
+     */
+    private int slotOf( Card card, int owner )
+    {
+        if (null != card)
+        {
+            for (int slot = firstSlotOf( card ); slot >= 0; slot = nextSameSlot[slot])
+            {
+                if (owners[slot] == owner)
+                    return slot;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Gets the owner of a card in this deck.
+     *
+     * @param card the card
+     * @return the owner of the card; 0 if the deck owns it, {@link Deck#DISCARD} if it has been
+     * discarded, or -1 if the card is not part of this deck. If the deck holds more than one
+     * copy of the card, see {@link Deck#discard(Card)} for which one is reported; use
+     * {@link Deck#isHeldBy(Card, int)} to ask about a particular player.
+     */
+    public int getOwnerOf( Card card )
+    {
+        index();
+        int slot = slotOf( card );
+        return (0 > slot) ? -1 : owners[slot];
+    }
+
+    /**
+     * Keeps a journal of the most recent changes of owner, which can be read back with
+     * {@link Deck#getChangesSince(long)}. Shuffling does not change owners, so it is not
+     * journaled. The journal is disabled (capacity zero) until this is called.
+     *
+     * @param capacity the number of changes to keep; rounded up to a power of two. Zero
+     *                 disables the journal.
+     * @return this instance, suitable for fluent-style programming.
+     */
+    public Deck setJournalCapacity( int capacity )
+    {
+        if (0 > capacity)
+            throw new IllegalArgumentException( "The journal capacity cannot be negative" );
+        journalFloor = lastSequence;
+        if (0 == capacity)
+        {
+            journalCards = null;
+            journalOldOwners = journalNewOwners = null;
+            return this;
+        }
+        capacity = Integer.highestOneBit( capacity - 1 ) << 1;
+        if (0 == capacity)
+            capacity = 1;
+        journalCards = new Card[capacity];
+        journalOldOwners = new int[capacity];
+        journalNewOwners = new int[capacity];
+        return this;
+    }
+
+    /**
+     * @return the sequence number of the most recent change of owner in this deck, or zero if
+     * there has not been one. Save this to ask for the changes since now.
+     */
+    public long getSequence()
+    {
+        return lastSequence;
+    }
+
+    /**
+     * Gets the changes of owner made after a given change, from the journal.
+     *
+     * @param sequence the sequence number of the last change already known to the caller,
+     *                 typically a value previously returned by {@link Deck#getSequence()}.
+     * @return a new {@link List} of the changes made since, oldest first; or null if the
+     * journal no longer holds all of them, in which case the caller must start again from the
+     * current state of the deck. Without a journal changes are not all numbered, so this is
+     * always null, even when nothing seems to have changed.
+     */
+    public List<Change> getChangesSince( long sequence )
+    {
+        if (null == journalCards)
+            return null;
+        if (sequence >= lastSequence)
+            return new ArrayList<>(  );
+        if (sequence < journalFloor || lastSequence - sequence > journalCards.length)
+            return null;
+        List<Change> changes = new ArrayList<>( (int) (lastSequence - sequence) );
+        int mask = journalCards.length - 1;
+        for (long next = sequence + 1; next <= lastSequence; next++)
+        {
+            int i = (int) next & mask;
+            changes.add( new Change( next, journalCards[i], journalOldOwners[i], journalNewOwners[i] ));
+        }
+        return changes;
+    }
+
+    /**
+     * Adds a listener to be told about every change of owner in this deck, as it happens.
+     *
+     * @param listener the listener
+     * @return this instance, suitable for fluent-style programming.
+     */
+    public Deck addListener( DeckListener listener )
+    {
+        listeners.add( listener );
+        return this;
+    }
+
+    /**
+     * @param listener a listener previously added to this deck
+     * @return this instance, suitable for fluent-style programming.
+     */
+    public Deck removeListener( DeckListener listener )
+    {
+        listeners.remove( listener );
+        return this;
+    }
+
+    /**
+     * @return true if changes of owner are being journaled or listened to.
+     */
+    protected boolean isJournaling()
+    {
+        return null != journalCards || !listeners.isEmpty();
+    }
+
+    /**
+     * Records a change of owner in the journal and tells the listeners about it. Sub-classes
+     * which change owners without going through the methods of this class must call this for
+     * every change.
+     *
+     * @param card     the card which changed hands
+     * @param oldOwner the owner of the card before the change
+     * @param newOwner the owner of the card after the change
+     */
+    protected void recordChange( Card card, int oldOwner, int newOwner )
+    {
+        long sequence = ++lastSequence;
+        if (null != journalCards)
+        {
+            int i = (int) sequence & (journalCards.length - 1);
+            journalCards[i] = card;
+            journalOldOwners[i] = oldOwner;
+            journalNewOwners[i] = newOwner;
+        }
+        if (!listeners.isEmpty())
+        {
+            Change change = new Change( sequence, card, oldOwner, newOwner );
+            for (DeckListener listener : listeners)
+            {
+                listener.ownerChanged( this, change );
+            }
+        }
+    }
+
+    /**
+     * Captures the state of this deck for {@link DeckCodec}.
+     *
+     * @return three arrays: the slot at each position of the dealing order, the owner of each
+     * slot, and the slots in the discard pile, oldest first.
+     */
+    int[][] captureState()
+    {
+        index();
+        return new int[][] { Arrays.copyOf( order, numCards ), Arrays.copyOf( owners, numCards ),
+            Arrays.copyOf( discardPile, discardCount ) };
+    }
+
+    /**
+     * Restores a state captured by {@link Deck#captureState()}. The arrays must describe a deck
+     * with the same number of cards as this one.
+     */
+    void restoreState( int[] order, int[] owners, int[] discards )
+    {
+        index();
+        System.arraycopy( order, 0, this.order, 0, numCards );
+        for (int slot = 0; slot < numCards; slot++)
+        {
+            if (owners[slot] != this.owners[slot])
+                recordChange( cardList.get( slot ), this.owners[slot], owners[slot] );
+        }
+        System.arraycopy( owners, 0, this.owners, 0, numCards );
+        for (int position = 0; position < numCards; position++)
+        {
+            positions[order[position]] = position;
+        }
+        System.arraycopy( discards, 0, discardPile, 0, discards.length );
+        discardCount = discards.length;
+        reindex();
+    }
+
+    /**
+     * Creates an independent copy of this deck in its current state: the same cards, owned by
+     * the same players, in the same dealing order, with the same discard pile. Dealing,
+     * shuffling or discarding in either deck has no effect on the other, so a fork can be used
+     * to try out hypothetical deals without disturbing a game in progress.
+     * <p>
+     * A fork costs a few array copies proportional to the size of the deck. The cards, the faces
+     * and the index used to find a card are shared until one of the decks changes them. The
+     * fork shares the {@link RandomSource} of this deck as well; give it its own with
+     * {@link Deck#setRandomSource(RandomSource)} if the two decks will be shuffled on different
+     * threads, or if the fork must not consume numbers from this deck's source.
+     * <p>
+     * Sub-classes with state of their own must override this method, call super.fork() and
+     * copy that state into the result.
+     *
+     * @return a new deck of the same class as this one.
+     */
+    public Deck fork()
+    {
+        index();
+        Deck copy;
+        try
+        {
+            copy = (Deck) super.clone();
+        }
+        catch (CloneNotSupportedException e)
+        {
+            throw new AssertionError( e );  // cannot happen, we are Cloneable
+        }
+        copy.cardList = new ArrayList<>( cardList );
+        copy.owners = owners.clone();
+        copy.order = order.clone();
+        copy.positions = positions.clone();
+        copy.discardPile = discardPile.clone();
+        copy.holdings = new HashMap<>( holdings.size() * 2 );
+        for (Map.Entry<Integer, BitSet> entry : holdings.entrySet())
+        {
+            copy.holdings.put( entry.getKey(), (BitSet) entry.getValue().clone() );
+        }
+        copy.lastHoldings = null;
+        copy.shuffled = new int[0];
+        if (null != journalCards)
+        {
+            copy.journalCards = journalCards.clone();
+            copy.journalOldOwners = journalOldOwners.clone();
+            copy.journalNewOwners = journalNewOwners.clone();
+        }
+        copy.listeners = new CopyOnWriteArrayList<>(  );
+        identityShared = copy.identityShared = true;
+        facesShared = copy.facesShared = true;
+        return copy;
+    }
 
     /**
-     * Add a newly instantiated {@link Card} to this deck.
+     * Replaces the source of random numbers used to shuffle this deck. By default every deck
+     * uses the shared, cryptographically strong {@link RandomSource#secure()}.
      *
-     * @param suit  the suit of the new card
-     * @param value the face value of the new card
+     * @param random the new source of random numbers
      * @return this instance, suitable for fluent-style programming.
      */
-    protected Deck addCard( int suit, int value )
+    public Deck setRandomSource( RandomSource random )
     {
-        cardList.add( new Card( suit, value ));
+        this.random = random;
         return this;
     }
 
     /**
-     * Adds a {@link Deck.Face} object associated with a specific card to the internal Face map.
-     * Consistent with Java maps, if the reference already exists it will be replaced.
-     * <p>
-     * This method is protected, so only derived sub-classes can add a face reference.
-     *
-     * @param card the reference card
-     * @param face the {@link Deck.Face} object to be associated with the reference card.
-     * @return this instance, suitable for fluent-style programming.
+     * @return the source of random numbers used to shuffle this deck
      */
-    protected Deck addFace( Card card, Face face )
+    protected RandomSource getRandomSource()
     {
-        TreeMap<Integer, Face> cardFaces = deckFaces.computeIfAbsent(
-            card.getSuit(), k -> new TreeMap<>() );
-        cardFaces.put( card.getValue(), face );
-        return this;
+        return random;
     }
 
     /**
-     * Gets the {@link Deck.Face} object associated with the reference card
+     * Shuffles all the cards owned by the deck (i.e. owned by 0), using a Fisher-Yates shuffle.
+     * Cards held by players or discarded keep their place in the dealing order, so only the
+     * undealt cards are rearranged. This runs in time proportional to the number of undealt
+     * cards and does not disturb the owner index. Use {@link Deck#shuffleCustom(Comparator)}
+     * if the shuffled cards must be grouped in some way.
+     */
+    public void shuffle()
+    {
+        shuffle( random );
+    }
+
+    /**
+     * Shuffles all the cards owned by the deck, as {@link Deck#shuffle()} does, with the given
+     * source of random numbers. The deck's own source is never replaced during a shuffle, so a
+     * seeded shuffle can't disturb, or be disturbed by, {@link Deck#newSeed()} on another thread.
+     * Sub-classes which keep their own dealing order override this rather than the public
+     * shuffles.
      *
-     * @param card the reference card
-     * @return the associated {@link Deck.Face} object
+     * @param random the source of random numbers for this shuffle
      */
-    public Face getFace( Card card )
+    protected void shuffle( RandomSource random )
     {
-        TreeMap<Integer, Face> cardFaces = deckFaces.get( card.getSuit() );
-        if (null != cardFaces)
+        index();
+        int count = countHoldings( 0 );
+        if (shuffled.length < count)
+            shuffled = new int[cardList.size()];
+        int n = 0;
+        for (int i = nextHolding( 0, 0 ); i >= 0; i = nextHolding( 0, i + 1 ))
+        {
+            shuffled[n++] = i;
+        }
+        for (int i = count - 1; i > 0; i--)
         {
-            return cardFaces.get( card.getValue() );
+            int a = shuffled[i];
+            int b = shuffled[random.nextInt( i + 1 )];
+            int slot = order[a];
+            order[a] = order[b];
+            order[b] = slot;
+            positions[order[a]] = a;
+            positions[order[b]] = b;
         }
-        return null;
     }
 
-    private void randomize()
+    /**
+     * Shuffles the deck in a custom manner. The caller provides a {@link Comparator} object that
+     * will be applied before comparing the cards by a random number. Thus it is possible,
+     * for example, to shuffle the deck but group all the cards by suit. Unlike
+     * {@link Deck#shuffle()} this rearranges every card in the deck, and costs a sort.
+     *
+     * @param comparator the custom Comparator
+     */
+    public void shuffleCustom( Comparator<Card> comparator )
     {
-        for (Card card : cardList)
+        index();
+        // create a new random number for every card in the deck
+        long[] keys = new long[numCards];
+        Integer[] slots = new Integer[numCards];
+        for (int slot = 0; slot < numCards; slot++)
+        {
+            keys[slot] = random.nextLong();
+            slots[slot] = slot;
+        }
+        // Now sort by the custom comparator, finishing by sorting by the random value;
+        Arrays.sort( slots, Comparator.comparing( (Integer slot) -> cardList.get( slot ), comparator )
+            .thenComparingLong( slot -> keys[slot] ));
+        for (int position = 0; position < numCards; position++)
         {
-            card.setRandom( random.nextLong());
+            order[position] = slots[position];
+            positions[slots[position]] = position;
         }
+        reindex();
     }
 
     /**
-     * Shuffles the deck by sorting the deck first by owner and then by assigned random number.
-     * This will have the effect of shuffling all the cards in the deck, but those owned by
-     * the deck (i.e. owned by 0) will be first in line and those which are discarded will
-     * (probably) be at the end of the list. It acts by calling the {@link Deck#shuffleCustom(Comparator)}
-     * method which has the effect of resetting all the random numbers before sorting.
+     * Shuffles the cards owned by the deck, as {@link Deck#shuffle()} does, but with a fast,
+     * seeded source of random numbers in place of this deck's own. Shuffling a deck in the same
+     * state with the same seed always produces the same order.
+     *
+     * @param seed the seed; see {@link RandomSource#seeded(long)}
      */
-    public void shuffle()
+    public void shuffle( long seed )
     {
-        // Now sort the list by 1) owner and 2) random number.
-        shuffleCustom( Comparator.comparing( Card::getOwner ));
+        shuffle( RandomSource.seeded( seed ));
     }
 
     /**
-     * Shuffles the deck in a custom manner. The caller provides a {@link Comparator} object that
-     * will be applied before comparing the cards by their random number. Thus it is possible,
-     * for example, to shuffle the deck but group all the cards by suit, or by owner (as
-     * {@link Deck#shuffle()} does).
+     * Draws a new seed from this deck's source of random numbers, suitable for
+     * {@link Deck#reset(long)}. Recording the seed allows the deal to be replayed later.
      *
-     * @param comparator the custom Comparator
+     * @return a new seed
      */
-    public void shuffleCustom( Comparator<Card> comparator )
+    public long newSeed()
     {
-        randomize();    // create a new random number for every card in the deck
-        // Now sort the list by the custom comparator, finishing by sorting by the random value;
-        cardList.sort( comparator.thenComparing( Card::getRandom ) );
+        return random.nextLong();
     }
 
     /**
@@ -149,11 +982,63 @@ public class Deck
      */
     public void reset()
     {
-        for (Card card : cardList)
+        returnAllCards();
+        shuffle();
+    }
+
+    /**
+     * Resets the owner of all cards to 0 (the deck), puts them back in the order they were added
+     * to the deck, and shuffles them with a seed. The deck then deals the same cards in the same
+     * order whenever it is reset with the same seed, whatever happened to it before, so a hand
+     * can be replayed from its seed.
+     *
+     * @param seed the seed; see {@link RandomSource#seeded(long)}
+     */
+    public void reset( long seed )
+    {
+        returnAllCards();
+        for (int slot = 0; slot < numCards; slot++)
         {
-            card.setOwner( 0 );
+            order[slot] = slot;
+            positions[slot] = slot;
         }
-        shuffle();
+        shuffle( seed );
+    }
+
+    private void returnAllCards()
+    {
+        index();
+        if (isJournaling())
+        {
+            for (int slot = 0; slot < numCards; slot++)
+            {
+                if (0 != owners[slot])
+                    recordChange( cardList.get( slot ), owners[slot], 0 );
+            }
+        }
+        Arrays.fill( owners, 0, numCards, 0 );
+        discardCount = 0;
+        holdAll( numCards );    // whatever the dealing order, the deck now holds every position
+    }
+
+    /**
+     * Returns this deck to the state it was in when its cards were added: every card owned by
+     * the deck, in the order it was added, with an empty discard pile. The listeners are removed,
+     * the journal is emptied and the default source of random numbers is restored, but the faces
+     * are kept. This costs a few passes over primitive arrays and allocates nothing, so a deck
+     * can be recycled for a new game (see {@link DeckPool}) rather than built again.
+     */
+    public void recycle()
+    {
+        listeners.clear();
+        returnAllCards();
+        for (int slot = 0; slot < numCards; slot++)
+        {
+            order[slot] = slot;
+            positions[slot] = slot;
+        }
+        journalFloor = lastSequence;
+        random = RandomSource.secure();
     }
 
 
@@ -166,15 +1051,11 @@ public class Deck
      */
     public Card dealCardTo( int playerNum )
     {
-        for (Card toBeDealt : cardList)
-        {
-            if (0 == toBeDealt.getOwner())
-            {
-                toBeDealt.setOwner( playerNum );
-                return toBeDealt;
-            }
-        }
-        return null;    // No undealt cards remaining
+        index();
+        int position = nextHolding( 0, 0 );
+        if (0 > position)
+            return null;    // No undealt cards remaining
+        return transfer( position, playerNum );
     }
 
     /**
@@ -182,40 +1063,53 @@ public class Deck
      *
      * @param playerNum a non-zero integer value representing a single player                  who will receive the card
      * @param suit      the suit requested
-     * @return the first undealt card from the card list which matches the requested suit.
+     * @return the first undealt card in the dealing order which matches the requested suit.
      */
     public Card dealCardToPlayerBySuit( int playerNum, int suit )
     {
-        for (Card toBeDealt : cardList)
+        index();
+        for (int i = nextHolding( 0, 0 ); i >= 0; i = nextHolding( 0, i + 1 ))
         {
-            if (0 == toBeDealt.getOwner() && toBeDealt.getSuit() == suit )
-            {
-                toBeDealt.setOwner( playerNum );
-                return toBeDealt;
-            }
+            if (cardAt( i ).getSuit() == suit)
+                return transfer( i, playerNum );
         }
         return null;    // No undealt cards of the requested suit remaining
     }
 
     /**
-     * Discard a card. Simply sets the owner of the card to {@link Deck#DISCARD} and sets
-     * the random value to the current time in milliseconds. Because the random value is reset
-     * on every discard, the most recently discarded card can be retrieved by getting all the
-     * cards owned by {@link Deck#DISCARD}, sorting the list in reverse by {@link Card#getRandom()},
-     * and taking the first card in the list.
+     * Discard a card. Sets the owner of the card to {@link Deck#DISCARD} and puts it on top of
+     * the discard pile, so {@link Deck#getDiscards()} will return it first. If the deck holds
+     * several copies of the card, a copy held by a player is discarded in preference to one
+     * still in the deck, but it may be any player's copy: when the owner is known, use
+     * {@link Deck#discard(Card, int)}. Discarding a card that is not part of this deck has no
+     * effect.
      *
      * @param card the card being discarded.
      * @return the Deck object, suitable for fluent-style programming.
      */
     public Deck discard( Card card )
     {
-        card.setOwner( DISCARD ).setRandom( System.currentTimeMillis() );
-        try
-        {
-            // Don't discard cards too fast.
-            Thread.sleep(1);
-        }
-        catch( InterruptedException ignore ) {}
+        index();
+        int slot = slotOf( card );
+        if (0 <= slot)
+            transfer( positions[slot], DISCARD );
+        return this;
+    }
+
+    /**
+     * Discards a player's copy of a card, leaving any copies held by other players alone. Has no
+     * effect if the player holds no copy of the card.
+     *
+     * @param card  the card being discarded.
+     * @param owner the player discarding it.
+     * @return the Deck object, suitable for fluent-style programming.
+     */
+    public Deck discard( Card card, int owner )
+    {
+        index();
+        int slot = slotOf( card, owner );
+        if (0 <= slot)
+            transfer( positions[slot], DISCARD );
         return this;
     }
 
@@ -226,15 +1120,11 @@ public class Deck
      */
     public Card burnCard()
     {
-        for (Card card : cardList)
-        {
-            if (0 == card.getOwner())
-            {
-                discard( card );
-                return card;
-            }
-        }
-        return null;
+        index();
+        int position = nextHolding( 0, 0 );
+        if (0 > position)
+            return null;
+        return transfer( position, DISCARD );
     }
 
     /**
@@ -242,27 +1132,74 @@ public class Deck
      */
     public List<Card> getDiscards()
     {
-        List<Card> hand = getHandByOwner( DISCARD );
-        hand.sort( Comparator.comparing( Card::getRandom ).reversed() );
+        index();
+        List<Card> hand = new ArrayList<>( discardCount );
+        for (int i = discardCount - 1; i >= 0; i--)
+        {
+            hand.add( cardList.get( discardPile[i] ));
+        }
         return hand;
     }
 
     /**
-     * Gets hand by owner.
+     * Gets hand by owner. The cards are looked up in the owner index, so the cost is
+     * proportional to the size of the hand rather than the size of the deck.
      *
      * @param owner the owner
-     * @return the hand by owner
+     * @return a new {@link List} of the cards held by the owner, in the order they were dealt.
+     * The caller is free to modify the list.
      */
     public List<Card> getHandByOwner( int owner )
     {
-        return cardList.stream()
-            .filter( card -> card.getOwner() == owner )
-            .collect( Collectors.toList());
+        index();
+        List<Card> hand = new ArrayList<>( countHoldings( owner ));
+        for (int i = nextHolding( owner, 0 ); i >= 0; i = nextHolding( owner, i + 1 ))
+        {
+            hand.add( cardAt( i ));
+        }
+        return hand;
+    }
+
+    /**
+     * Gets hand by owner, with each card packed into an int by {@link CardCodec}.
+     *
+     * @param owner the owner
+     * @return a new array of the packed cards held by the owner, in the order they were dealt.
+     * @throws IllegalArgumentException if the owner holds a card which can not be packed.
+     */
+    public int[] getEncodedHand( int owner )
+    {
+        index();
+        int[] hand = new int[countHoldings( owner )];
+        getEncodedHand( owner, hand, 0 );
+        return hand;
+    }
+
+    /**
+     * Copies the hand of an owner into an existing array, with each card packed into an int by
+     * {@link CardCodec}, so that a hand can be looked at repeatedly without allocating.
+     *
+     * @param owner  the owner
+     * @param hand   the array to receive the packed cards, in the order they were dealt.
+     * @param offset the index in hand of the first card.
+     * @return the number of cards copied.
+     * @throws IllegalArgumentException if the owner holds a card which can not be packed.
+     * @throws ArrayIndexOutOfBoundsException if the hand does not fit in the array.
+     */
+    public int getEncodedHand( int owner, int[] hand, int offset )
+    {
+        index();
+        int count = 0;
+        for (int i = nextHolding( owner, 0 ); i >= 0; i = nextHolding( owner, i + 1 ))
+        {
+            hand[offset + count++] = CardCodec.encode( cardAt( i ));
+        }
+        return count;
     }
 
     /**
      * Deal a new hand to a player, by simply finding the first numCardsInHand number of cards
-     * in the card list owned by the deck and changing the owner to the new player.
+     * owned by the deck and changing the owner to the new player.
      * <p>
      * It is not anticipated that the player would have an existing hand, but in that case
      * the existing cards would have to be replaced and not added to. So we first cache the
@@ -290,6 +1227,58 @@ public class Deck
         return getHandByOwner( playerNum );
     }
 
+    /**
+     * Deals a round of cards to several players in a single pass over the undealt cards. Each
+     * player in turn receives a block of cardsEach consecutive cards, as with
+     * {@link Deck#dealNewHandToPlayer(int, int)}; use {@link Deck#dealRoundRobin(int[], int)} to
+     * deal one card at a time around the table instead.
+     * <p>
+     * Unlike dealNewHandToPlayer, this does not take back any cards the players already hold;
+     * the new cards are added to their hands. If the deck runs out, the last hands are short.
+     *
+     * @param players   the players to deal to, in order
+     * @param cardsEach the number of cards to deal to each player
+     * @return the cards dealt to each player by this round, in the same order as players.
+     */
+    public List<List<Card>> dealRound( int[] players, int cardsEach )
+    {
+        return deal( players, cardsEach, false );
+    }
+
+    /**
+     * Deals a round of cards one at a time around the table, in a single pass over the undealt
+     * cards: the first card to the first player, the second to the second player and so on,
+     * until every player has cardsEach cards. Otherwise the same as
+     * {@link Deck#dealRound(int[], int)}.
+     *
+     * @param players   the players to deal to, in order
+     * @param cardsEach the number of cards to deal to each player
+     * @return the cards dealt to each player by this round, in the same order as players.
+     */
+    public List<List<Card>> dealRoundRobin( int[] players, int cardsEach )
+    {
+        return deal( players, cardsEach, true );
+    }
+
+    private List<List<Card>> deal( int[] players, int cardsEach, boolean roundRobin )
+    {
+        index();
+        List<List<Card>> hands = new ArrayList<>( players.length );
+        for (int i = 0; i < players.length; i++)
+        {
+            hands.add( new ArrayList<>( cardsEach ));
+        }
+        int total = players.length * cardsEach;
+        int position = nextHolding( 0, 0 );
+        for (int n = 0; n < total && position >= 0; n++)
+        {
+            int seat = roundRobin ? n % players.length : n / cardsEach;
+            hands.get( seat ).add( transfer( position, players[seat] ));
+            position = nextHolding( 0, position + 1 );
+        }
+        return hands;
+    }
+
     /**
      * Intended for use in returning a player's hand to the deck (when newOwner == 0)
      * but can also be used to change the owner of a hand to a new, arbitrary owner.
@@ -299,11 +1288,20 @@ public class Deck
      */
     public void returnHandFromOwner( int oldOwner, int newOwner )
     {
-        for (Card card : cardList )
+        index();
+        if (oldOwner == newOwner)
+            return;
+        if (DISCARD == oldOwner)
+            discardCount = 0;
+        for (int i = nextHolding( oldOwner, 0 ); i >= 0; i = nextHolding( oldOwner, i + 1 ))
         {
-            if (card.getOwner() == oldOwner)
-                card.setOwner( newOwner );
+            int slot = order[i];
+            owners[slot] = newOwner;
+            if (DISCARD == newOwner)
+                discardPile[discardCount++] = slot;
+            recordChange( cardList.get( slot ), oldOwner, newOwner );
         }
+        moveHoldings( oldOwner, newOwner );
     }
 
     /**
@@ -314,6 +1312,201 @@ public class Deck
      * @return the JSON string
      */
     public String buildCardAsJSON( Card card,  String path )
+    {
+        return fragmentOf( card, path ).json;
+    }
+
+    /**
+     * Creates a JSON string describing a hand of cards.
+     *
+     * @param hand a {@link List} of {@link Card}s constituting a single hand.
+     * @param path the URL path where the {@link Deck.Face} images can be found.
+     * @return the JSON string
+     */
+    public String buildHandAsJSON(List<Card> hand, String path )
+    {
+        return writeHandAsJSON( hand, path, new StringBuilder( 16 + 96 * hand.size() )).toString();
+    }
+
+    /**
+     * Writes the JSON describing a single {@link Card} directly to a destination, without building
+     * any intermediate strings. The JSON is the same as that returned by
+     * {@link Deck#buildCardAsJSON(Card, String)}.
+     *
+     * @param card the card being described as JSON
+     * @param path the URL path where the {@link Deck.Face} images can be found.
+     * @param out  the destination
+     * @return the destination, suitable for fluent-style programming.
+     * @throws IOException if the destination does
+     */
+    public Appendable writeCardAsJSON( Card card, String path, Appendable out ) throws IOException
+    {
+        return out.append( fragmentOf( card, path ).json );
+    }
+
+    /**
+     * Writes the JSON describing a hand of cards directly to a destination, without building
+     * any intermediate strings. The JSON is the same as that returned by
+     * {@link Deck#buildHandAsJSON(List, String)}.
+     *
+     * @param hand a {@link List} of {@link Card}s constituting a single hand.
+     * @param path the URL path where the {@link Deck.Face} images can be found.
+     * @param out  the destination
+     * @return the destination, suitable for fluent-style programming.
+     * @throws IOException if the destination does
+     */
+    public Appendable writeHandAsJSON( List<Card> hand, String path, Appendable out ) throws IOException
+    {
+        out.append( HAND_START );
+        boolean first = true;
+        for( Card card : hand )
+        {
+            if (!first)
+                out.append( HAND_SEPARATOR );
+            out.append( fragmentOf( card, path ).json );
+            first = false;
+        }
+        return out.append( HAND_END );
+    }
+
+    /**
+     * Appends the JSON describing a single {@link Card} to a StringBuilder.
+     *
+     * @see Deck#writeCardAsJSON(Card, String, Appendable)
+     */
+    public StringBuilder writeCardAsJSON( Card card, String path, StringBuilder out )
+    {
+        return out.append( fragmentOf( card, path ).json );
+    }
+
+    /**
+     * Appends the JSON describing a hand of cards to a StringBuilder.
+     *
+     * @see Deck#writeHandAsJSON(List, String, Appendable)
+     */
+    public StringBuilder writeHandAsJSON( List<Card> hand, String path, StringBuilder out )
+    {
+        try
+        {
+            writeHandAsJSON( hand, path, (Appendable) out );
+        }
+        catch (IOException e)
+        {
+            throw new AssertionError( e );  // cannot happen, StringBuilder doesn't throw
+        }
+        return out;
+    }
+
+    /**
+     * Writes the JSON describing a single {@link Card} to a stream, encoded as UTF-8.
+     *
+     * @see Deck#writeCardAsJSON(Card, String, Appendable)
+     */
+    public OutputStream writeCardAsJSON( Card card, String path, OutputStream out ) throws IOException
+    {
+        out.write( fragmentOf( card, path ).utf8 );
+        return out;
+    }
+
+    /**
+     * Writes the JSON describing a hand of cards to a stream, encoded as UTF-8.
+     *
+     * @see Deck#writeHandAsJSON(List, String, Appendable)
+     */
+    public OutputStream writeHandAsJSON( List<Card> hand, String path, OutputStream out ) throws IOException
+    {
+        out.write( HAND_START_UTF8 );
+        boolean first = true;
+        for( Card card : hand )
+        {
+            if (!first)
+                out.write( HAND_SEPARATOR_UTF8 );
+            out.write( fragmentOf( card, path ).utf8 );
+            first = false;
+        }
+        out.write( HAND_END_UTF8 );
+        return out;
+    }
+
+    /**
+     * Puts the JSON describing a single {@link Card} into a buffer, encoded as UTF-8.
+     *
+     * @throws java.nio.BufferOverflowException if the buffer fills up
+     * @see Deck#writeCardAsJSON(Card, String, Appendable)
+     */
+    public ByteBuffer writeCardAsJSON( Card card, String path, ByteBuffer out )
+    {
+        return out.put( fragmentOf( card, path ).utf8 );
+    }
+
+    /**
+     * Puts the JSON describing a hand of cards into a buffer, encoded as UTF-8.
+     *
+     * @throws java.nio.BufferOverflowException if the buffer fills up
+     * @see Deck#writeHandAsJSON(List, String, Appendable)
+     */
+    public ByteBuffer writeHandAsJSON( List<Card> hand, String path, ByteBuffer out )
+    {
+        out.put( HAND_START_UTF8 );
+        boolean first = true;
+        for( Card card : hand )
+        {
+            if (!first)
+                out.put( HAND_SEPARATOR_UTF8 );
+            out.put( fragmentOf( card, path ).utf8 );
+            first = false;
+        }
+        return out.put( HAND_END_UTF8 );
+    }
+
+    private static final String HAND_START = "{\n\"cards\":[\n";
+    private static final String HAND_SEPARATOR = ",\n";
+    private static final String HAND_END = "\n]\n}";
+    private static final byte[] HAND_START_UTF8 = HAND_START.getBytes( StandardCharsets.UTF_8 );
+    private static final byte[] HAND_SEPARATOR_UTF8 = HAND_SEPARATOR.getBytes( StandardCharsets.UTF_8 );
+    private static final byte[] HAND_END_UTF8 = HAND_END.getBytes( StandardCharsets.UTF_8 );
+
+    /**
+     * The JSON describing one card for one face path, both as a String and as UTF-8.
+     */
+    private static final class Fragment
+    {
+        final String json;
+        final byte[] utf8;
+
+        Fragment( String json )
+        {
+            this.json = json;
+            this.utf8 = json.getBytes( StandardCharsets.UTF_8 );
+        }
+    }
+
+    /**
+     * Gets the JSON describing a card for a face path, rendering it the first time it is asked
+     * for. The JSON only depends on the card, its face and the path, so it is cached per path and
+     * per card until the faces change. Only a few paths are ever expected; past
+     * MAX_FRAGMENT_PATHS the JSON is rendered every time rather than letting the cache grow.
+     */
+    private Fragment fragmentOf( Card card, String path )
+    {
+        String key = (null == path) ? "" : path;
+        ConcurrentHashMap<Card, Fragment> pathFragments = fragments.get( key );
+        if (null == pathFragments)
+        {
+            if (fragments.size() >= MAX_FRAGMENT_PATHS)
+                return new Fragment( renderCardAsJSON( card, key ));
+            pathFragments = fragments.computeIfAbsent( key, k -> new ConcurrentHashMap<>(  ));
+        }
+        Fragment fragment = pathFragments.get( card );
+        if (null == fragment)
+        {
+            fragment = new Fragment( renderCardAsJSON( card, key ));
+            pathFragments.put( card, fragment );
+        }
+        return fragment;
+    }
+
+    private String renderCardAsJSON( Card card, String path )
     {
         Face face = getFace( card );
 
@@ -327,7 +1520,7 @@ public class Deck
         if (null != face)
         {
             sb.append( ",\n\"img\":\"" )
-                .append( null == path ? "" : path )
+                .append( path )
                 .append( face.image )
                 .append( "\",\n\"description\":\"" )
                 .append( face.description )
@@ -336,60 +1529,47 @@ public class Deck
         sb.append( "\n}");
         return sb.toString();
     }
-
     /**
-     * Creates a JSON string describing a hand of cards.
+     * Gets the card from a player's hand that matches the card presented. The card is looked up
+     * by suit and value, so the cost does not depend on the size of the hand or of the deck,
+     * only on the number of copies of the card the deck holds.
      *
-     * @param hand a {@link List} of {@link Card}s constituting a single hand.
-     * @param path the URL path where the {@link Deck.Face} images can be found.
-     * @return the JSON string
+     * @param cardToMatch The card we are trying to match
+     * @param playerNum   The player whose hand we are searching
+     * @return The (a) matching card from the player's hand, or null if a match cannot be found.
      */
-    public String buildHandAsJSON(List<Card> hand, String path )
+    public Card getMatchingCard( Card cardToMatch, int playerNum )
     {
-        StringBuilder sb = new StringBuilder("{\n\"cards\":[\n");
-        boolean first = true;
-        for( Card card : hand )
-        {
-            if (!first)
-                sb.append( ",\n" );
-            sb.append( buildCardAsJSON( card, path ));
-            first = false;
-        }
-        sb.append( "\n]\n}" );
-        return sb.toString();
+        index();
+        int slot = slotOf( cardToMatch, playerNum );
+        return (0 > slot) ? null : cardList.get( slot );
     }
 
     /**
-     * Gets the card from a player's hand that matches the card presented.
+     * Tells whether a player holds a card, or a copy of it.
      *
-     * @param cardToMatch The card we are trying to match
-     * @param playerNum   The player whose hand we are searching
-     * @return The (a) matching card from the player's hand, or null if a match cannot be found.
+     * @param card      the card
+     * @param playerNum the player
+     * @return true if the player holds the card.
      */
-    public Card getMatchingCard( Card cardToMatch, int playerNum )
+    public boolean isHeldBy( Card card, int playerNum )
     {
-        if (null != cardToMatch)
-        {
-            List<Card> hand = getHandByOwner( playerNum );
-            for (Card card : hand)
-            {
-                if (card.getValue() == cardToMatch.getValue()
-                    && card.getSuit() == cardToMatch.getSuit())
-                {
-                    return card;
-                }
-            }
-        }
-        return null;
+        return null != getMatchingCard( card, playerNum );
     }
 
     @Override
     /**
-     * Returns a JSON representation of the entire deck. Use with caution.
+     * Returns a JSON representation of the entire deck, in dealing order. Use with caution.
      */
     public String toString()
     {
-        return buildHandAsJSON( cardList, "" );
+        index();
+        List<Card> cards = new ArrayList<>( numCards );
+        for (int position = 0; position < numCards; position++)
+        {
+            cards.add( cardAt( position ));
+        }
+        return buildHandAsJSON( cards, "" );
     }
 
 }
@@ -0,0 +1,397 @@
+package com.passkeysoft;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Holds the state of a great many decks of the same cards, for example one per trial of a
+ * Monte Carlo simulation, in a single {@link ByteBuffer}. Each deck is a fixed size record of
+ * 4 bytes per card plus 4, so millions of decks can be kept without creating millions of
+ * objects, and the garbage collector never has to look at them.
+ * <p>
+ * Decks in an arena are numbered from 0, and the cards in them are identified by their slot:
+ * the index of the card in the list the arena was created from. {@link #getCard(int)} turns a
+ * slot back into a {@link Card}, and {@link #getCode(int)} into the card as packed by
+ * {@link CardCodec}, where it can be. As in {@link Deck}, owner 0 is the deck itself and
+ * {@link Deck#DISCARD} is the discard pile; owners must lie between 0 and 65535. An arena keeps
+ * no record of the order in which cards were discarded.
+ * <p>
+ * An arena is not thread safe, but different threads may work on different decks at once.
+ */
+@SuppressWarnings({"UnusedReturnValue", "WeakerAccess"})
+public class DeckArena
+{
+    private final Card[] cards;
+    private final int[] codes;
+    private final int numDecks;
+    private final int recordSize;
+    private final ByteBuffer buffer;
+
+    // record layout: int deal cursor, char slot for each position, char owner for each slot
+    private static final int CURSOR = 0;
+    private static final int ORDER = 4;
+
+    /**
+     * Instantiates a new DeckArena in a heap buffer. Every deck starts out as if just
+     * {@link #reset(int) reset}.
+     *
+     * @param cards    the cards in every deck.
+     * @param numDecks the number of decks in the arena.
+     */
+    public DeckArena( List<Card> cards, int numDecks )
+    {
+        this( cards, numDecks, false );
+    }
+
+    /**
+     * Instantiates a new DeckArena. Every deck starts out as if just {@link #reset(int) reset}.
+     *
+     * @param cards    the cards in every deck.
+     * @param numDecks the number of decks in the arena.
+     * @param direct   true to keep the decks in a direct buffer, outside the java heap.
+     * @throws IllegalArgumentException if there are more than 65535 cards, or the decks would
+     *                                  take more than 2GB.
+     */
+    public DeckArena( List<Card> cards, int numDecks, boolean direct )
+    {
+        if (cards.size() > 0xFFFF)
+            throw new IllegalArgumentException( "An arena can not hold decks of " + cards.size() + " cards" );
+        this.cards = cards.toArray( new Card[0] );
+        this.numDecks = numDecks;
+        recordSize = ORDER + 4 * this.cards.length;
+        if (numDecks < 0 || numDecks > Integer.MAX_VALUE / recordSize)
+            throw new IllegalArgumentException( "An arena can not hold " + numDecks + " decks" );
+        codes = new int[this.cards.length];
+        for (int slot = 0; slot < codes.length; slot++)
+        {
+            codes[slot] = CardCodec.canEncode( this.cards[slot] ) ? CardCodec.encode( this.cards[slot] ) : 0;
+        }
+        buffer = (direct ? ByteBuffer.allocateDirect( numDecks * recordSize )
+                         : ByteBuffer.allocate( numDecks * recordSize )).order( ByteOrder.nativeOrder() );
+        resetAll();
+    }
+
+    /**
+     * @return the number of decks in the arena.
+     */
+    public int getNumDecks()
+    {
+        return numDecks;
+    }
+
+    /**
+     * @return the number of cards in each deck.
+     */
+    public int getNumCards()
+    {
+        return cards.length;
+    }
+
+    /**
+     * @param slot the slot of a card.
+     * @return the card in that slot.
+     */
+    public Card getCard( int slot )
+    {
+        return cards[slot];
+    }
+
+    /**
+     * @param slot the slot of a card.
+     * @return the card in that slot as packed by {@link CardCodec}, or 0 if it can't be packed.
+     */
+    public int getCode( int slot )
+    {
+        return codes[slot];
+    }
+
+    private int base( int deck )
+    {
+        if (deck < 0 || deck >= numDecks)
+            throw new IndexOutOfBoundsException( "No deck " + deck );
+        return deck * recordSize;
+    }
+
+    private int slotAt( int base, int position )
+    {
+        return buffer.getChar( base + ORDER + 2 * position );
+    }
+
+    private int ownerAt( int base, int slot )
+    {
+        return buffer.getChar( base + ORDER + 2 * (cards.length + slot) );
+    }
+
+    private void setOwner( int base, int slot, int owner )
+    {
+        if (owner < 0 || owner > 0xFFFF)
+            throw new IllegalArgumentException( "Owner " + owner + " can not be held in an arena" );
+        buffer.putChar( base + ORDER + 2 * (cards.length + slot), (char) owner );
+        if (0 == owner)
+            buffer.putInt( base + CURSOR, 0 );
+    }
+
+    /**
+     * Returns every card of a deck to the deck, in the order of the list the arena was created
+     * from.
+     *
+     * @param deck the deck
+     */
+    public void reset( int deck )
+    {
+        int base = base( deck );
+        buffer.putInt( base + CURSOR, 0 );
+        for (int slot = 0; slot < cards.length; slot++)
+        {
+            buffer.putChar( base + ORDER + 2 * slot, (char) slot );
+            buffer.putChar( base + ORDER + 2 * (cards.length + slot), (char) 0 );
+        }
+    }
+
+    /**
+     * {@link #reset(int) Resets} every deck in the arena.
+     */
+    public void resetAll()
+    {
+        for (int deck = 0; deck < numDecks; deck++)
+        {
+            reset( deck );
+        }
+    }
+
+    /**
+     * Shuffles the dealing order of a deck, without changing who holds each card.
+     *
+     * @param deck   the deck
+     * @param random the source of randomness for the shuffle.
+     */
+    public void shuffle( int deck, RandomSource random )
+    {
+        int base = base( deck );
+        for (int i = cards.length - 1; i > 0; i--)
+        {
+            int j = random.nextInt( i + 1 );
+            int at = base + ORDER + 2 * i, other = base + ORDER + 2 * j;
+            char slot = buffer.getChar( at );
+            buffer.putChar( at, buffer.getChar( other ));
+            buffer.putChar( other, slot );
+        }
+        buffer.putInt( base + CURSOR, 0 );
+    }
+
+    /**
+     * {@link #reset(int) Resets} and {@link #shuffle(int, RandomSource) shuffles} every deck in
+     * the arena.
+     *
+     * @param random the source of randomness for the shuffles.
+     */
+    public void resetAndShuffleAll( RandomSource random )
+    {
+        for (int deck = 0; deck < numDecks; deck++)
+        {
+            reset( deck );
+            shuffle( deck, random );
+        }
+    }
+
+    /**
+     * Gives the next card in the dealing order of a deck which is still held by the deck to a
+     * new owner.
+     *
+     * @param deck  the deck
+     * @param owner the new owner
+     * @return the slot of the card dealt, or -1 if the deck holds no cards.
+     */
+    public int dealCardTo( int deck, int owner )
+    {
+        int base = base( deck );
+        for (int position = buffer.getInt( base + CURSOR ); position < cards.length; position++)
+        {
+            int slot = slotAt( base, position );
+            if (0 == ownerAt( base, slot ))
+            {
+                setOwner( base, slot, owner );
+                buffer.putInt( base + CURSOR, position + 1 );
+                return slot;
+            }
+        }
+        buffer.putInt( base + CURSOR, cards.length );
+        return -1;
+    }
+
+    /**
+     * Gives a card of a deck to a new owner, whoever holds it now.
+     *
+     * @param deck  the deck
+     * @param slot  the slot of the card
+     * @param owner the new owner
+     * @return the previous owner of the card.
+     */
+    public int setOwnerOf( int deck, int slot, int owner )
+    {
+        int base = base( deck );
+        int previous = ownerAt( base, slot );
+        setOwner( base, slot, owner );
+        return previous;
+    }
+
+    /**
+     * Discards a card of a deck, whoever holds it now.
+     *
+     * @param deck the deck
+     * @param slot the slot of the card
+     * @return the previous owner of the card.
+     */
+    public int discard( int deck, int slot )
+    {
+        return setOwnerOf( deck, slot, Deck.DISCARD );
+    }
+
+    /**
+     * @param deck the deck
+     * @param slot the slot of a card
+     * @return the owner of the card in that deck.
+     */
+    public int getOwnerOf( int deck, int slot )
+    {
+        return ownerAt( base( deck ), slot );
+    }
+
+    /**
+     * @param deck     the deck
+     * @param position a position in the dealing order of the deck
+     * @return the slot of the card at that position.
+     */
+    public int getSlotAt( int deck, int position )
+    {
+        return slotAt( base( deck ), position );
+    }
+
+    /**
+     * Copies the slots of the cards held by an owner into an array, without allocating.
+     *
+     * @param deck   the deck
+     * @param owner  the owner
+     * @param slots  the array to receive the slots, in dealing order.
+     * @param offset the index in slots of the first card.
+     * @return the number of cards the owner holds.
+     */
+    public int getHandByOwner( int deck, int owner, int[] slots, int offset )
+    {
+        int base = base( deck ), count = 0;
+        for (int position = 0; position < cards.length; position++)
+        {
+            int slot = slotAt( base, position );
+            if (owner == ownerAt( base, slot ))
+                slots[offset + count++] = slot;
+        }
+        return count;
+    }
+
+    /**
+     * Copies the cards held by an owner, as packed by {@link CardCodec}, into an array, without
+     * allocating.
+     *
+     * @param deck   the deck
+     * @param owner  the owner
+     * @param hand   the array to receive the packed cards, in dealing order.
+     * @param offset the index in hand of the first card.
+     * @return the number of cards the owner holds.
+     */
+    public int getEncodedHand( int deck, int owner, int[] hand, int offset )
+    {
+        int count = getHandByOwner( deck, owner, hand, offset );
+        for (int i = offset; i < offset + count; i++)
+        {
+            hand[i] = codes[hand[i]];
+        }
+        return count;
+    }
+
+    /**
+     * Gets the cards held by an owner. This allocates, so is best kept out of inner loops.
+     *
+     * @param deck  the deck
+     * @param owner the owner
+     * @return a new {@link List} of the cards held by the owner, in dealing order.
+     */
+    public List<Card> getCardsByOwner( int deck, int owner )
+    {
+        int[] slots = new int[cards.length];
+        int count = getHandByOwner( deck, owner, slots, 0 );
+        List<Card> hand = new ArrayList<>( count );
+        for (int i = 0; i < count; i++)
+        {
+            hand.add( cards[slots[i]] );
+        }
+        return hand;
+    }
+
+    /**
+     * @param deck  the deck
+     * @param owner the owner
+     * @return the number of cards of the deck held by the owner.
+     */
+    public int countHeldBy( int deck, int owner )
+    {
+        int base = base( deck ), count = 0;
+        for (int slot = 0; slot < cards.length; slot++)
+        {
+            if (owner == ownerAt( base, slot ))
+                count++;
+        }
+        return count;
+    }
+
+    /**
+     * Gives all the cards of a deck held by one owner to another.
+     *
+     * @param deck     the deck
+     * @param oldOwner the owner giving up the cards
+     * @param newOwner the owner receiving them
+     */
+    public void returnHandFromOwner( int deck, int oldOwner, int newOwner )
+    {
+        int base = base( deck );
+        for (int slot = 0; slot < cards.length; slot++)
+        {
+            if (oldOwner == ownerAt( base, slot ))
+                setOwner( base, slot, newOwner );
+        }
+    }
+
+    /**
+     * Copies the state of one deck of this arena into a {@link Deck} of the same cards, for
+     * example to look at an interesting trial more closely.
+     *
+     * @param deck   the deck
+     * @param target a deck holding the same cards, in the same order, as this arena.
+     * @param <D>    the type of the target
+     * @return the target
+     */
+    public <D extends Deck> D copyTo( int deck, D target )
+    {
+        int base = base( deck );
+        int[] order = new int[cards.length], owners = new int[cards.length];
+        List<Integer> discards = new ArrayList<>(  );
+        for (int i = 0; i < cards.length; i++)
+        {
+            order[i] = slotAt( base, i );
+            owners[i] = ownerAt( base, i );
+        }
+        for (int slot : order)
+        {
+            if (Deck.DISCARD == owners[slot])
+                discards.add( slot );
+        }
+        int[] discardPile = new int[discards.size()];
+        for (int i = 0; i < discardPile.length; i++)
+        {
+            discardPile[i] = discards.get( i );
+        }
+        target.restoreState( order, owners, discardPile );
+        return target;
+    }
+}
@@ -0,0 +1,220 @@
+package com.passkeysoft;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Encodes the complete state of a {@link Deck} (its cards, their dealing order, who holds each
+ * card, and the order of the discard pile) in a compact binary form, and decodes it again. A
+ * standard 52 card deck takes around 250 bytes.
+ * <p>
+ * Encoding writes straight into a caller-supplied {@link ByteBuffer} and decoding reads
+ * straight from one, starting at the buffer's position. The faces of a deck are not encoded:
+ * to restore a deck with its faces, decode into a new instance of the original class with
+ * {@link DeckCodec#decode(ByteBuffer, Deck)}.
+ * <p>
+ * The format is a header of two magic bytes and a version byte, followed by unsigned
+ * variable-length integers (seven bits per byte, low bits first). Suits, values and owners
+ * are zig-zag encoded, so small negative numbers stay small.
+ */
+public final class DeckCodec
+{
+    /**
+     * The version of the format written by this class.
+     */
+    public static final int VERSION = 1;
+
+    private static final byte MAGIC_0 = 'D';
+    private static final byte MAGIC_1 = 'K';
+
+    private DeckCodec() { }
+
+    /**
+     * Encodes the state of a deck.
+     *
+     * @param deck the deck to be encoded
+     * @param out  the buffer to write to
+     * @return the buffer, suitable for fluent-style programming.
+     * @throws java.nio.BufferOverflowException if the buffer is too small; see
+     *                                          {@link DeckCodec#maxEncodedSize(Deck)}.
+     */
+    public static ByteBuffer encode( Deck deck, ByteBuffer out )
+    {
+        int[][] state = deck.captureState();
+        int[] order = state[0];
+        int[] owners = state[1];
+        int[] discards = state[2];
+
+        out.put( MAGIC_0 ).put( MAGIC_1 ).put( (byte) VERSION );
+        putVarint( out, order.length );
+        for (int slot = 0; slot < order.length; slot++)
+        {
+            Card card = deck.cardList.get( slot );
+            putVarint( out, zigzag( card.getSuit() ));
+            putVarint( out, zigzag( card.getValue() ));
+        }
+        for (int slot : order)
+        {
+            putVarint( out, slot );
+        }
+        for (int owner : owners)
+        {
+            putVarint( out, zigzag( owner ));
+        }
+        putVarint( out, discards.length );
+        for (int slot : discards)
+        {
+            putVarint( out, slot );
+        }
+        return out;
+    }
+
+    /**
+     * @param deck a deck
+     * @return the largest number of bytes {@link DeckCodec#encode(Deck, ByteBuffer)} can write
+     * for the deck in any state.
+     */
+    public static int maxEncodedSize( Deck deck )
+    {
+        deck.index();
+        // each card: suit, value, order, owner and a place in the discard pile
+        return 3 + 5 + 5 + deck.cardList.size() * 25;
+    }
+
+    /**
+     * Decodes a deck into a new, plain {@link Deck}.
+     *
+     * @param in the buffer to read from
+     * @return the decoded deck
+     * @throws IllegalArgumentException if the buffer does not hold an encoded deck
+     * @throws java.nio.BufferUnderflowException if the encoded deck is truncated
+     */
+    public static Deck decode( ByteBuffer in )
+    {
+        int numCards = readHeader( in );
+        Deck deck = new Deck();
+        for (int slot = 0; slot < numCards; slot++)
+        {
+            int suit = unzigzag( getVarint( in ));
+            // not Card.of(), which would keep every unknown card read for the life of the JVM
+            deck.cardList.add( Card.lookup( suit, unzigzag( getVarint( in ))));
+        }
+        return readState( in, deck );
+    }
+
+    /**
+     * Decodes a deck into an existing deck holding the same cards, added in the same order;
+     * typically a new instance of the class which was encoded.
+     *
+     * @param in   the buffer to read from
+     * @param deck the deck whose state is to be replaced
+     * @param <D>  the type of deck
+     * @return the deck
+     * @throws IllegalArgumentException if the buffer does not hold an encoded deck, or the
+     *                                  encoded cards are not the cards of the deck
+     * @throws java.nio.BufferUnderflowException if the encoded deck is truncated
+     */
+    public static <D extends Deck> D decode( ByteBuffer in, D deck )
+    {
+        int numCards = readHeader( in );
+        deck.index();
+        if (numCards != deck.cardList.size())
+            throw new IllegalArgumentException( "Encoded deck has " + numCards + " cards, not "
+                + deck.cardList.size() );
+        for (int slot = 0; slot < numCards; slot++)
+        {
+            int suit = unzigzag( getVarint( in ));
+            int value = unzigzag( getVarint( in ));
+            Card card = deck.cardList.get( slot );
+            if (card.getSuit() != suit || card.getValue() != value)
+                throw new IllegalArgumentException( "Encoded card " + slot + " is " + suit + ":"
+                    + value + ", not " + card );
+        }
+        return readState( in, deck );
+    }
+
+    private static int readHeader( ByteBuffer in )
+    {
+        if (MAGIC_0 != in.get() || MAGIC_1 != in.get())
+            throw new IllegalArgumentException( "Not an encoded deck" );
+        int version = in.get();
+        if (VERSION != version)
+            throw new IllegalArgumentException( "Unsupported encoded deck version " + version );
+        return getVarint( in );
+    }
+
+    private static <D extends Deck> D readState( ByteBuffer in, D deck )
+    {
+        int numCards = deck.cardList.size();
+        int[] order = new int[numCards];
+        boolean[] seen = new boolean[numCards];
+        for (int position = 0; position < numCards; position++)
+        {
+            order[position] = getSlot( in, numCards );
+            if (seen[order[position]])
+                throw new IllegalArgumentException( "Encoded dealing order is not a permutation" );
+            seen[order[position]] = true;
+        }
+        int[] owners = new int[numCards];
+        int numDiscards = 0;
+        for (int slot = 0; slot < numCards; slot++)
+        {
+            owners[slot] = unzigzag( getVarint( in ));
+            if (Deck.DISCARD == owners[slot])
+                numDiscards++;
+        }
+        if (getVarint( in ) != numDiscards)
+            throw new IllegalArgumentException( "Encoded discard pile does not match the owners" );
+        int[] discards = new int[numDiscards];
+        seen = new boolean[numCards];
+        for (int i = 0; i < numDiscards; i++)
+        {
+            discards[i] = getSlot( in, numCards );
+            if (Deck.DISCARD != owners[discards[i]] || seen[discards[i]])
+                throw new IllegalArgumentException( "Encoded discard pile does not match the owners" );
+            seen[discards[i]] = true;
+        }
+        deck.restoreState( order, owners, discards );
+        return deck;
+    }
+
+    private static int getSlot( ByteBuffer in, int numCards )
+    {
+        int slot = getVarint( in );
+        if (0 > slot || slot >= numCards)
+            throw new IllegalArgumentException( "Encoded slot " + slot + " is out of range" );
+        return slot;
+    }
+
+    private static int zigzag( int n )
+    {
+        return (n << 1) ^ (n >> 31);
+    }
+
+    private static int unzigzag( int n )
+    {
+        return (n >>> 1) ^ -(n & 1);
+    }
+
+    private static void putVarint( ByteBuffer out, int n )
+    {
+        while (0 != (n & ~0x7F))
+        {
+            out.put( (byte) ((n & 0x7F) | 0x80) );
+            n >>>= 7;
+        }
+        out.put( (byte) n );
+    }
+
+    private static int getVarint( ByteBuffer in )
+    {
+        int n = 0;
+        for (int shift = 0; shift < 35; shift += 7)
+        {
+            byte b = in.get();
+            n |= (b & 0x7F) << shift;
+            if (0 <= b)
+                return n;
+        }
+        throw new IllegalArgumentException( "Malformed encoded deck" );
+    }
+}
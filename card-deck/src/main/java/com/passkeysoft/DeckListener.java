@@ -0,0 +1,18 @@
+package com.passkeysoft;
+
+/**
+ * Receives every change of owner in a {@link Deck} as it happens.
+ *
+ * @see Deck#addListener(DeckListener)
+ */
+public interface DeckListener
+{
+    /**
+     * Called after a card has changed owner. Called on the thread which changed the owner, so
+     * it should return quickly, and must not change the deck.
+     *
+     * @param deck   the deck
+     * @param change the change
+     */
+    void ownerChanged( Deck deck, Deck.Change change );
+}
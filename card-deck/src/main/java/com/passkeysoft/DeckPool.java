@@ -0,0 +1,78 @@
+package com.passkeysoft;
+
+import java.util.function.Supplier;
+
+/**
+ * A pool of decks that can be reused from one game to the next, so that servers creating and
+ * abandoning many short-lived games don't have to build a new deck, with all its cards and
+ * faces, for each one. The pool may be shared by any number of threads.
+ *
+ * @param <D> the type of deck in the pool
+ */
+public class DeckPool<D extends Deck>
+{
+    private final Supplier<D> factory;
+    private final Object[] idle;
+    private int numIdle = 0;
+
+    /**
+     * Instantiates a new, empty DeckPool.
+     *
+     * @param factory creates a new deck whenever the pool is empty
+     * @param maxIdle the largest number of unused decks the pool will keep; any more that are
+     *                released are left to the garbage collector
+     */
+    public DeckPool( Supplier<D> factory, int maxIdle )
+    {
+        this.factory = factory;
+        idle = new Object[maxIdle];
+    }
+
+    /**
+     * Takes a deck from the pool, or creates a new one if the pool is empty. The deck is in its
+     * initial state: every card owned by the deck, in the order it was added, and not shuffled.
+     *
+     * @return a deck for the caller's exclusive use, until it is released.
+     */
+    @SuppressWarnings("unchecked")
+    public D acquire()
+    {
+        synchronized (idle)
+        {
+            if (0 < numIdle)
+            {
+                D deck = (D) idle[--numIdle];
+                idle[numIdle] = null;
+                return deck;
+            }
+        }
+        return factory.get();
+    }
+
+    /**
+     * Returns a deck to the pool. The deck is {@link Deck#recycle() recycled} at once, and must
+     * not be used by the caller again.
+     *
+     * @param deck a deck obtained from {@link DeckPool#acquire()}
+     */
+    public void release( D deck )
+    {
+        deck.recycle();
+        synchronized (idle)
+        {
+            if (numIdle < idle.length)
+                idle[numIdle++] = deck;
+        }
+    }
+
+    /**
+     * @return the number of unused decks in the pool
+     */
+    public int getIdleCount()
+    {
+        synchronized (idle)
+        {
+            return numIdle;
+        }
+    }
+}
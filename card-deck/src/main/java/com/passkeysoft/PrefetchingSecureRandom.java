@@ -0,0 +1,153 @@
+package com.passkeysoft;
+
+import java.nio.ByteBuffer;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A cryptographically strong {@link RandomSource} which can be shared by any number of decks and
+ * threads without contention. See {@link RandomSource#secure()}.
+ * <p>
+ * Each thread gets its own deterministic random bit generator (DRBG where the JVM has one,
+ * otherwise SHA1PRNG), seeded once from the system's non-blocking source. Random bytes are
+ * generated in bulk and handed out from a per-thread buffer, so a shuffle never waits for another
+ * thread, nor for the system's entropy pool. A background thread gathers fresh entropy from the
+ * system every few minutes, which each generator mixes into its state the next time it refills
+ * its buffer.
+ */
+final class PrefetchingSecureRandom implements RandomSource
+{
+    static final PrefetchingSecureRandom INSTANCE = new PrefetchingSecureRandom();
+
+    private static final int PREFETCH_LONGS = 64;
+    private static final int SEED_BYTES = 32;
+    private static final long RESEED_MINUTES = 5;
+
+    // Seeds new generators. Only used when a thread first needs random numbers.
+    private final SecureRandom seeder = new SecureRandom();
+
+    private final ThreadLocal<Generator> generators = ThreadLocal.withInitial( Generator::new );
+
+    private volatile Reseed reseed = new Reseed( 0, null );
+    private ScheduledExecutorService reseeder = null;
+
+    /**
+     * Fresh entropy for the generators, and a count so each generator can tell whether it has
+     * already used it.
+     */
+    private static final class Reseed
+    {
+        final int generation;
+        final byte[] seed;
+
+        Reseed( int generation, byte[] seed )
+        {
+            this.generation = generation;
+            this.seed = seed;
+        }
+    }
+
+    private final class Generator
+    {
+        private final SecureRandom drbg = newDrbg();
+        private final byte[] bytes = new byte[PREFETCH_LONGS * 8];
+        private final long[] longs = new long[PREFETCH_LONGS];
+        private int next = PREFETCH_LONGS;
+        private int generation;
+
+        Generator()
+        {
+            // seeding before first use keeps the generator from seeding itself, which may block
+            byte[] seed = new byte[SEED_BYTES];
+            synchronized (seeder)
+            {
+                seeder.nextBytes( seed );
+            }
+            drbg.setSeed( seed );
+            generation = reseed.generation;
+            startReseeder();
+        }
+
+        long nextLong()
+        {
+            if (PREFETCH_LONGS == next)
+                refill();
+            return longs[next++];
+        }
+
+        private void refill()
+        {
+            Reseed current = reseed;
+            if (current.generation != generation)
+            {
+                drbg.setSeed( current.seed );     // adds to the existing state; never replaces it
+                generation = current.generation;
+            }
+            drbg.nextBytes( bytes );
+            ByteBuffer.wrap( bytes ).asLongBuffer().get( longs );
+            next = 0;
+        }
+    }
+
+    private PrefetchingSecureRandom() { }
+
+    private static SecureRandom newDrbg()
+    {
+        try
+        {
+            return SecureRandom.getInstance( "DRBG" );
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            try
+            {
+                return SecureRandom.getInstance( "SHA1PRNG" );  // Java 8 has no DRBG
+            }
+            catch (NoSuchAlgorithmException e1)
+            {
+                return new SecureRandom();
+            }
+        }
+    }
+
+    private synchronized void startReseeder()
+    {
+        if (null != reseeder)
+            return;
+        reseeder = Executors.newSingleThreadScheduledExecutor( r -> {
+            Thread thread = new Thread( r, "deck-reseeder" );
+            thread.setDaemon( true );
+            return thread;
+        } );
+        // generateSeed() may block until the system has gathered enough entropy, which is why
+        // it's done here and not on the threads shuffling decks.
+        reseeder.scheduleWithFixedDelay( () ->
+                reseed = new Reseed( reseed.generation + 1, seeder.generateSeed( SEED_BYTES )),
+            RESEED_MINUTES, RESEED_MINUTES, TimeUnit.MINUTES );
+    }
+
+    @Override
+    public int nextInt( int bound )
+    {
+        if (0 >= bound)
+            throw new IllegalArgumentException( "bound must be positive" );
+        Generator generator = generators.get();
+        int r = (int) (generator.nextLong() >>> 33);
+        int m = bound - 1;
+        if (0 == (bound & m))
+            return (int) ((bound * (long) r) >> 31);
+        // reject the top end of the range, which would favour the low values (as Random does)
+        for (int u = r; u - (r = u % bound) + m < 0; u = (int) (generator.nextLong() >>> 33))
+            ;
+        return r;
+    }
+
+    @Override
+    public long nextLong()
+    {
+        return generators.get().nextLong();
+    }
+}
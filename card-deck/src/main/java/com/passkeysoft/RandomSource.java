@@ -0,0 +1,99 @@
+package com.passkeysoft;
+
+import java.util.Random;
+import java.util.SplittableRandom;
+
+/**
+ * A source of random numbers used by a {@link Deck} to shuffle its cards. Live games will
+ * normally want a cryptographically strong source such as {@link RandomSource#secure()}, which
+ * is what a {@link Deck} uses unless it is told otherwise, while simulations can trade
+ * unpredictability for speed by using a {@link SplittableRandom} or a seeded {@link Random}.
+ */
+public interface RandomSource
+{
+    /**
+     * @param bound the upper bound (exclusive). Must be positive.
+     * @return a uniformly distributed value between zero (inclusive) and bound (exclusive).
+     */
+    int nextInt( int bound );
+
+    /**
+     * @return a uniformly distributed long value.
+     */
+    long nextLong();
+
+    /**
+     * Gets the cryptographically strong RandomSource every {@link Deck} uses unless it is told
+     * otherwise. It may be shared by any number of decks and threads: each thread draws from its
+     * own generator, which is reseeded in the background, so shuffling never contends for, or
+     * waits on, the system's entropy source.
+     *
+     * @return the shared secure RandomSource
+     */
+    static RandomSource secure()
+    {
+        return PrefetchingSecureRandom.INSTANCE;
+    }
+
+    /**
+     * Wraps any {@link Random}, including {@link java.security.SecureRandom}, as a RandomSource.
+     *
+     * @param random the generator to draw from
+     * @return a RandomSource backed by the generator
+     */
+    static RandomSource of( Random random )
+    {
+        return new RandomSource()
+        {
+            @Override
+            public int nextInt( int bound )
+            {
+                return random.nextInt( bound );
+            }
+
+            @Override
+            public long nextLong()
+            {
+                return random.nextLong();
+            }
+        };
+    }
+
+    /**
+     * Wraps a {@link SplittableRandom} as a RandomSource. Fast, but not suitable for live
+     * games because its output is predictable.
+     *
+     * @param random the generator to draw from
+     * @return a RandomSource backed by the generator
+     */
+    static RandomSource of( SplittableRandom random )
+    {
+        return new RandomSource()
+        {
+            @Override
+            public int nextInt( int bound )
+            {
+                return random.nextInt( bound );
+            }
+
+            @Override
+            public long nextLong()
+            {
+                return random.nextLong();
+            }
+        };
+    }
+
+    /**
+     * Creates a fast, non-cryptographic RandomSource from a seed. The same seed always produces
+     * the same numbers, which makes it suitable for simulations, benchmarks and replaying a
+     * deal, but never for live games.
+     *
+     * @param seed the seed
+     * @return a new RandomSource backed by a {@link SplittableRandom}
+     */
+    static RandomSource seeded( long seed )
+    {
+        return of( new SplittableRandom( seed ));
+    }
+}
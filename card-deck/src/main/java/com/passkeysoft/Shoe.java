@@ -0,0 +1,145 @@
+package com.passkeysoft;
+
+/**
+ * A dealing shoe: several copies of the same set of cards shuffled together, as used for
+ * blackjack or canasta. A Shoe is a {@link Deck}, so cards are dealt, discarded and returned
+ * in the usual way.
+ * <p>
+ * The shoe remembers how far into the dealing order it has dealt, so the next card is found
+ * without searching past the cards already dealt, however large the shoe. A cut card can be
+ * placed at any depth (see {@link Shoe#setPenetration(double)}); once dealing reaches it
+ * {@link Shoe#isCutCardReached()} reports that the shoe should be {@link Deck#reset()} at the
+ * end of the round.
+ */
+@SuppressWarnings({"UnusedReturnValue", "WeakerAccess"})
+public class Shoe extends Deck
+{
+    private final int numDecks;
+
+    // No card at a position lower than the cursor is owned by the shoe.
+    private int cursor = 0;
+
+    private int cutCard = Integer.MAX_VALUE;
+
+    /**
+     * Instantiates a new Shoe holding copies of every card in a deck. The shoe uses the faces
+     * of that deck. Cards added to the deck later are not added to the shoe.
+     *
+     * @param deck     the deck to be copied. Its state (who holds each card) is ignored.
+     * @param numDecks the number of copies of the deck in the shoe
+     */
+    public Shoe( Deck deck, int numDecks )
+    {
+        if (1 > numDecks)
+            throw new IllegalArgumentException( "A shoe needs at least one deck" );
+        this.numDecks = numDecks;
+        for (int i = 0; i < numDecks; i++)
+        {
+            cardList.addAll( deck.cardList );
+        }
+        useFacesOf( deck );
+    }
+
+    /**
+     * @return the number of copies of the deck in this shoe
+     */
+    public int getNumDecks()
+    {
+        return numDecks;
+    }
+
+    /**
+     * Places the cut card after a given number of cards. Cards dealt, burned or discarded
+     * straight from the shoe all count.
+     *
+     * @param numCards the number of cards to be dealt before the cut card is reached
+     * @return this instance, suitable for fluent-style programming.
+     */
+    public Shoe setCutCard( int numCards )
+    {
+        cutCard = numCards;
+        return this;
+    }
+
+    /**
+     * Places the cut card at a fraction of the depth of the shoe; e.g. 0.75 places it after
+     * three quarters of the cards.
+     *
+     * @param penetration the fraction of the shoe to be dealt before the cut card is reached,
+     *                    between 0 and 1.
+     * @return this instance, suitable for fluent-style programming.
+     */
+    public Shoe setPenetration( double penetration )
+    {
+        if (0 > penetration || penetration > 1)
+            throw new IllegalArgumentException( "Penetration must be between 0 and 1" );
+        return setCutCard( (int) Math.round( penetration * cardList.size() ));
+    }
+
+    /**
+     * @return the number of cards that have left the shoe since it was last reset.
+     */
+    public int getCardsDealt()
+    {
+        index();
+        return cardList.size() - countHoldings( 0 );
+    }
+
+    /**
+     * @return true if dealing has reached the cut card, and the shoe should be reset at the end
+     * of the current round.
+     */
+    public boolean isCutCardReached()
+    {
+        return getCardsDealt() >= cutCard;
+    }
+
+    @Override
+    public Shoe fork()
+    {
+        return (Shoe) super.fork();
+    }
+
+    @Override
+    protected void clearHoldings()
+    {
+        super.clearHoldings();
+        cursor = Integer.MAX_VALUE;
+    }
+
+    @Override
+    protected void holdAll( int count )
+    {
+        super.holdAll( count );
+        cursor = 0;
+    }
+
+    @Override
+    protected void addHolding( int owner, int position )
+    {
+        super.addHolding( owner, position );
+        if (0 == owner && position < cursor)
+            cursor = position;
+    }
+
+    @Override
+    protected int nextHolding( int owner, int fromPosition )
+    {
+        if (0 != owner || fromPosition > cursor)
+            return super.nextHolding( owner, fromPosition );
+        int position = super.nextHolding( 0, cursor );
+        cursor = (0 > position) ? Integer.MAX_VALUE : position;
+        return position;
+    }
+
+    @Override
+    protected void moveHoldings( int oldOwner, int newOwner )
+    {
+        super.moveHoldings( oldOwner, newOwner );
+        if (0 == newOwner)
+        {
+            int position = super.nextHolding( 0, 0 );
+            cursor = (0 > position) ? Integer.MAX_VALUE : position;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.passkeysoft;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class CardCodecTest
+{
+    @Test
+    public void encode()
+    {
+        // the king of diamonds from Cactus Kev's description: 00001000 00000000 01001011 00100101
+        assertEquals( 0x08004B25, CardCodec.encode( 4, 11 ));
+        for (int suit = 1; suit < 16; suit <<= 1)
+        {
+            for (int rank = 0; rank < CardCodec.RANKS; rank++)
+            {
+                int code = CardCodec.encode( Card.of( suit, rank ));
+                assertEquals( rank, CardCodec.rankOf( code ));
+                assertEquals( suit, CardCodec.suitOf( code ));
+                assertEquals( 1 << rank, CardCodec.rankBitOf( code ));
+                assertSame( Card.of( suit, rank ), CardCodec.toCard( code ));
+            }
+        }
+        assertEquals( 2, CardCodec.primeOf( CardCodec.encode( 1, 0 )));
+        assertEquals( 41, CardCodec.primeOf( CardCodec.encode( 8, 12 )));
+        assertTrue( CardCodec.canEncode( Card.of( 8, 12 )));
+        assertFalse( CardCodec.canEncode( Card.of( 3, 12 )));
+        assertFalse( CardCodec.canEncode( Card.of( 8, 13 )));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void encodeBadSuit()
+    {
+        CardCodec.encode( Card.of( 0, 5 ));
+    }
+
+    @Test
+    public void encodedHand()
+    {
+        Deck deck = new Deck();
+        for (int suit = 1; suit < 16; suit <<= 1)
+        {
+            for (int rank = 0; rank < CardCodec.RANKS; rank++)
+            {
+                deck.addCard( suit, rank );
+            }
+        }
+        deck.shuffle( 5L );
+        for (int i = 0; i < 5; i++)
+        {
+            deck.dealCardTo( 1 );
+        }
+        List<Card> hand = deck.getHandByOwner( 1 );
+        int[] codes = deck.getEncodedHand( 1 );
+        assertArrayEquals( CardCodec.encode( hand ), codes );
+        assertArrayEquals( hand.toArray(), CardCodec.toCards( codes ));
+
+        int[] buffer = new int[8];
+        assertEquals( 5, deck.getEncodedHand( 1, buffer, 2 ));
+        assertEquals( codes[0], buffer[2] );
+        assertEquals( codes[4], buffer[6] );
+        assertEquals( 0, deck.getEncodedHand( 2, buffer, 0 ));
+
+        ConcurrentDeck concurrent = new ConcurrentDeck( deck );
+        Card card = concurrent.dealCardTo( 1 );
+        assertArrayEquals( new int[] { CardCodec.encode( card ) }, concurrent.getEncodedHand( 1 ));
+    }
+}
@@ -0,0 +1,128 @@
+package com.passkeysoft;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class CompactDeckTest
+{
+    private CompactDeck testDeck = new CompactDeck();
+
+    @Before
+    /*
+     * Builds a standard 52 card poker deck, without shuffling it.
+     */
+    public void setUp()
+    {
+        for (int suit = 0; suit < 4; suit++)
+        {
+            for (int value = 0; value < 13; value++)
+            {
+                testDeck.cardList.add( new Card( suit, value ));
+            }
+        }
+    }
+
+    @Test
+    public void dealAndReturn()
+    {
+        List<Card> hand = testDeck.dealNewHandToPlayer( 1, 7 );
+        assertEquals( 0x7FL, testDeck.getOwnerMask( 1 ));
+        assertEquals( 7, testDeck.countHand( 1 ));
+        assertEquals( 45, testDeck.countHand( 0 ));
+        assertEquals( hand, testDeck.getCards( testDeck.getOwnerMask( 1 )));
+        assertTrue( testDeck.holds( 1, 6 ));
+        assertFalse( testDeck.holds( 1, 7 ));
+
+        testDeck.discard( hand.get( 2 ));
+        assertEquals( 0x7BL, testDeck.getOwnerMask( 1 ));
+        assertEquals( 0x04L, testDeck.getOwnerMask( Deck.DISCARD ));
+
+        testDeck.returnHandFromOwner( 1, 0 );
+        assertEquals( 0L, testDeck.getOwnerMask( 1 ));
+        assertEquals( 51, testDeck.countHand( 0 ));
+
+        // the returned cards are at the top of the deck again
+        assertEquals( hand.get( 0 ), testDeck.dealCardTo( 2 ));
+    }
+
+    @Test
+    public void masksByCard()
+    {
+        testDeck.setRandomSource( RandomSource.seeded( 5 )).shuffle();
+        List<Card> hand = testDeck.dealNewHandToPlayer( 1, 7 );
+        long mask = 0;
+        for (Card card : hand)
+        {
+            mask |= 1L << testDeck.cardList.indexOf( card );
+        }
+        assertEquals( mask, testDeck.getOwnerMask( 1 ));
+        assertEquals( new HashSet<>( hand ), new HashSet<>( testDeck.getCards( mask )));
+        assertTrue( testDeck.holds( 1, testDeck.cardList.indexOf( hand.get( 3 ))));
+
+        // each bit is still the same card after the deck is shuffled, by either method
+        long undealt = testDeck.getOwnerMask( 0 );
+        testDeck.shuffle();
+        assertEquals( mask, testDeck.getOwnerMask( 1 ));
+        assertEquals( undealt, testDeck.getOwnerMask( 0 ));
+        testDeck.shuffleCustom( Comparator.comparing( Card::getSuit ));
+        assertEquals( mask, testDeck.getOwnerMask( 1 ));
+        assertEquals( undealt, testDeck.getOwnerMask( 0 ));
+    }
+
+    @Test
+    public void manyOwners()
+    {
+        // more owners than the initial mask table holds
+        for (int player = 1; player <= 12; player++)
+        {
+            testDeck.dealNewHandToPlayer( player, 4 );
+        }
+        for (int player = 1; player <= 12; player++)
+        {
+            assertEquals( 4, testDeck.countHand( player ));
+        }
+        assertEquals( 4, testDeck.countHand( 0 ));
+        testDeck.reset();
+        assertEquals( 52, testDeck.countHand( 0 ));
+        assertEquals( -1L >>> 12, testDeck.getOwnerMask( 0 ));
+    }
+
+    @Test
+    public void fork()
+    {
+        testDeck.dealNewHandToPlayer( 1, 5 );
+        CompactDeck copy = testDeck.fork();
+        assertEquals( testDeck.getOwnerMask( 1 ), copy.getOwnerMask( 1 ));
+
+        copy.returnHandFromOwner( 1, 0 );
+        copy.dealNewHandToPlayer( 2, 3 );
+        assertEquals( 0L, copy.getOwnerMask( 1 ));
+        assertEquals( 5, testDeck.countHand( 1 ));
+        assertEquals( 0, testDeck.countHand( 2 ));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void tooManyCards()
+    {
+        for (int i = 0; i < 13; i++)
+        {
+            testDeck.cardList.add( new Card( 4, i ));
+        }
+        testDeck.dealCardTo( 1 );
+    }
+
+    @Test
+    public void emptyDeck()
+    {
+        assertNull( new CompactDeck().dealCardTo( 1 ));
+    }
+}
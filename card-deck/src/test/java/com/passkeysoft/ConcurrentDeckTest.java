@@ -0,0 +1,165 @@
+package com.passkeysoft;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ConcurrentDeckTest
+{
+    private ConcurrentDeck testDeck;
+
+    @Before
+    /*
+     * Builds a standard 52 card poker deck, without shuffling it.
+     */
+    public void setUp()
+    {
+        Deck deck = new Deck();
+        for (int suit = 0; suit < 4; suit++)
+        {
+            for (int value = 0; value < 13; value++)
+            {
+                deck.addCard( suit, value );
+            }
+        }
+        testDeck = new ConcurrentDeck( deck );
+    }
+
+    @Test
+    public void dealAndDiscard()
+    {
+        List<Card> hand = testDeck.dealNewHandToPlayer( 1, 7 );
+        assertEquals( 7, hand.size() );
+        assertEquals( Card.of( 0, 0 ), hand.get( 0 ));
+        assertEquals( 45, testDeck.getHandByOwner( 0 ).size() );
+        assertEquals( 1, testDeck.getOwnerOf( hand.get( 3 )));
+
+        Card burned = testDeck.burnCard();
+        testDeck.discard( hand.get( 2 )).discard( hand.get( 5 ));
+        List<Card> discards = testDeck.getDiscards();
+        assertEquals( 3, discards.size() );
+        assertEquals( hand.get( 5 ), discards.get( 0 ));
+        assertEquals( burned, discards.get( 2 ));
+        assertNull( testDeck.getMatchingCard( hand.get( 2 ), 1 ));
+        assertEquals( hand.get( 4 ), testDeck.getMatchingCard( hand.get( 4 ), 1 ));
+
+        assertEquals( 2, testDeck.dealCardToPlayerBySuit( 2, 2 ).getSuit() );
+        List<List<Card>> hands = testDeck.getHandsByOwner( new int[] { 1, 2, Deck.DISCARD } );
+        assertEquals( 5, hands.get( 0 ).size() );
+        assertEquals( 1, hands.get( 1 ).size() );
+        assertEquals( 3, hands.get( 2 ).size() );
+
+        // a card returned to the deck can be dealt again
+        testDeck.returnHandFromOwner( 1, 0 );
+        assertEquals( hand.get( 0 ), testDeck.dealCardTo( 3 ));
+
+        testDeck.setJournalCapacity( 64 );
+        long sequence = testDeck.getSequence();
+        testDeck.setRandomSource( RandomSource.of( new SplittableRandom( 7 ))).reset();
+        assertEquals( 5, testDeck.getChangesSince( sequence ).size() );     // 3 discards, players 2 and 3
+        assertEquals( 52, testDeck.getHandByOwner( 0 ).size() );
+        assertEquals( 0, testDeck.getDiscards().size() );
+    }
+
+    @Test
+    public void fork()
+    {
+        testDeck.dealNewHandToPlayer( 1, 5 );
+        ConcurrentDeck copy = testDeck.fork();
+        copy.returnHandFromOwner( 1, Deck.DISCARD );
+        assertEquals( 5, testDeck.getHandByOwner( 1 ).size() );
+        assertEquals( 0, testDeck.getDiscards().size() );
+        assertEquals( 5, copy.getDiscards().size() );
+    }
+
+    @Test
+    public void concurrentDealing() throws InterruptedException
+    {
+        for (int round = 0; round < 20; round++)
+        {
+            testDeck.reset();
+            List<Thread> threads = new ArrayList<>(  );
+            for (int player = 1; player <= 4; player++)
+            {
+                final int playerNum = player;
+                Thread thread = new Thread( () -> {
+                    while (null != testDeck.dealCardTo( playerNum ))
+                    {
+                        if (0 == playerNum % 2)
+                            testDeck.getHandsByOwner( new int[] { 1, 2, 3, 4 } );
+                    }
+                } );
+                threads.add( thread );
+                thread.start();
+            }
+            testDeck.shuffle();
+            for (Thread thread : threads)
+            {
+                thread.join();
+            }
+
+            // every card was dealt to exactly one player
+            List<List<Card>> hands = testDeck.getHandsByOwner( new int[] { 1, 2, 3, 4 } );
+            HashSet<Card> dealt = new HashSet<>(  );
+            for (List<Card> hand : hands)
+            {
+                dealt.addAll( hand );
+            }
+            assertEquals( 52, dealt.size() );
+            assertEquals( 52, hands.get( 0 ).size() + hands.get( 1 ).size()
+                + hands.get( 2 ).size() + hands.get( 3 ).size() );
+            assertTrue( testDeck.getHandByOwner( 0 ).isEmpty() );
+        }
+    }
+
+    @Test
+    public void discardOrderAcrossWrap()
+    {
+        // five discards straddling where the change numbers turn negative, and where they wrap
+        for (long first : new long[] { (1L << 31) - 2, (1L << 32) - 2 })
+        {
+            long[] snapshot = new long[6];
+            snapshot[5] = ConcurrentDeck.state( first - 1, 1 );
+            for (int slot = 0; slot < 5; slot++)
+            {
+                snapshot[slot] = ConcurrentDeck.state( first + slot, Deck.DISCARD );
+            }
+            assertEquals( Arrays.asList( 4, 3, 2, 1, 0 ),
+                ConcurrentDeck.discardsOf( snapshot, (int) (first + 4) ));
+        }
+    }
+
+    @Test
+    public void recycle()
+    {
+        testDeck.shuffle();
+        testDeck.dealNewHandToPlayer( 1, 5 );
+        testDeck.burnCard();
+        ConcurrentDeck copy = testDeck.fork();
+        testDeck.recycle();
+        assertEquals( 52, testDeck.getHandByOwner( 0 ).size() );
+        assertEquals( 0, testDeck.getDiscards().size() );
+        // back in the order the cards were added
+        for (Card card : testDeck.cardList)
+        {
+            assertEquals( card, testDeck.dealCardTo( 1 ));
+        }
+
+        // the fork kept its own state, and still deals and discards in order
+        assertEquals( 5, copy.getHandByOwner( 1 ).size() );
+        Card card = copy.dealCardTo( 2 );
+        copy.discard( card, 3 );    // not player 3's card
+        assertEquals( 2, copy.getOwnerOf( card ));
+        copy.discard( card, 2 );
+        assertEquals( card, copy.getDiscards().get( 0 ));
+    }
+}
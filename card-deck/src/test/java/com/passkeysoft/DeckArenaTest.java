@@ -0,0 +1,104 @@
+package com.passkeysoft;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+
+public class DeckArenaTest
+{
+    private static List<Card> standardCards()
+    {
+        List<Card> cards = new ArrayList<>(  );
+        for (int suit = 1; suit < 16; suit <<= 1)
+        {
+            for (int rank = 0; rank < CardCodec.RANKS; rank++)
+            {
+                cards.add( Card.of( suit, rank ));
+            }
+        }
+        return cards;
+    }
+
+    @Test
+    public void dealAndQuery()
+    {
+        List<Card> cards = standardCards();
+        DeckArena arena = new DeckArena( cards, 1000, true );
+        assertEquals( 1000, arena.getNumDecks());
+        assertEquals( 52, arena.getNumCards());
+
+        arena.resetAndShuffleAll( RandomSource.seeded( 11L ));
+        int[] slots = new int[52];
+        for (int deck = 0; deck < arena.getNumDecks(); deck++)
+        {
+            for (int i = 0; i < 5; i++)
+            {
+                for (int player = 1; player <= 4; player++)
+                {
+                    arena.dealCardTo( deck, player );
+                }
+            }
+            assertEquals( 32, arena.countHeldBy( deck, 0 ));
+            assertEquals( 5, arena.getHandByOwner( deck, 3, slots, 0 ));
+            for (int i = 0; i < 5; i++)
+            {
+                assertEquals( 3, arena.getOwnerOf( deck, slots[i] ));
+            }
+        }
+        // every deck was shuffled differently, and kept apart from the others
+        assertEquals( 5, arena.getCardsByOwner( 7, 1 ).size() );
+        assertNotEquals( arena.getCardsByOwner( 7, 1 ), arena.getCardsByOwner( 8, 1 ));
+
+        int[] hand = new int[5];
+        arena.getEncodedHand( 7, 2, hand, 0 );
+        List<Card> cardsHeld = arena.getCardsByOwner( 7, 2 );
+        assertArrayEquals( CardCodec.encode( cardsHeld ), hand );
+
+        arena.returnHandFromOwner( 7, 2, Deck.DISCARD );
+        assertEquals( 0, arena.countHeldBy( 7, 2 ));
+        assertEquals( 5, arena.countHeldBy( 7, Deck.DISCARD ));
+        arena.returnHandFromOwner( 7, Deck.DISCARD, 0 );
+        assertEquals( 37, arena.countHeldBy( 7, 0 ));
+
+        arena.reset( 7 );
+        assertEquals( 52, arena.countHeldBy( 7, 0 ));
+        int slot = arena.dealCardTo( 7, 9 );
+        assertEquals( 0, slot );
+        assertSame( cards.get( 0 ), arena.getCard( slot ));
+    }
+
+    @Test
+    public void copyTo()
+    {
+        List<Card> cards = standardCards();
+        DeckArena arena = new DeckArena( cards, 3 );
+        arena.shuffle( 2, RandomSource.seeded( 3L ));
+        for (int i = 0; i < 7; i++)
+        {
+            arena.dealCardTo( 2, 1 );
+        }
+        arena.discard( 2, arena.dealCardTo( 2, 2 ));
+
+        Deck deck = new Deck();
+        for (Card card : cards)
+        {
+            deck.addCard( card.getSuit(), card.getValue() );
+        }
+        arena.copyTo( 2, deck );
+        assertEquals( arena.getCardsByOwner( 2, 1 ), deck.getHandByOwner( 1 ));
+        assertEquals( 1, deck.getDiscards().size() );
+        assertEquals( arena.getCard( arena.getSlotAt( 2, 8 )), deck.dealCardTo( 3 ));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void badOwner()
+    {
+        new DeckArena( standardCards(), 1 ).dealCardTo( 0, -1 );
+    }
+}
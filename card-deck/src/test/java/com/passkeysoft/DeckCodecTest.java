@@ -0,0 +1,120 @@
+package com.passkeysoft;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.SplittableRandom;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+public class DeckCodecTest
+{
+    private Deck testDeck = new Deck();
+
+    @Before
+    /*
+     * Builds a standard 52 card poker deck plus a joker, shuffles it, and plays a few cards.
+     */
+    public void setUp()
+    {
+        for (int suit = 0; suit < 4; suit++)
+        {
+            for (int value = 0; value < 13; value++)
+            {
+                testDeck.addCard( suit, value );
+            }
+        }
+        testDeck.addCard( -1, 0 );
+        testDeck.setRandomSource( RandomSource.of( new SplittableRandom( 3 ))).shuffle();
+        testDeck.dealRound( new int[] { 1, 2, 3 }, 5 );
+        testDeck.burnCard();
+        testDeck.discard( testDeck.getHandByOwner( 2 ).get( 4 ))
+            .discard( testDeck.getHandByOwner( 1 ).get( 0 ));
+    }
+
+    @Test
+    public void roundTrip()
+    {
+        ByteBuffer buffer = ByteBuffer.allocate( DeckCodec.maxEncodedSize( testDeck ));
+        DeckCodec.encode( testDeck, buffer ).flip();
+        assertTrue( buffer.remaining() < 300 );
+
+        Deck copy = DeckCodec.decode( buffer );
+        assertEquals( 0, buffer.remaining() );
+        assertSameState( testDeck, copy );
+
+        // decoding into a deck of the same cards, in any state
+        Deck other = new Deck();
+        other.cardList.addAll( testDeck.cardList );
+        other.dealCardTo( 7 );
+        buffer.rewind();
+        assertSameState( testDeck, DeckCodec.decode( buffer, other ));
+
+        // ... including a deck which keeps its state differently
+        ConcurrentDeck concurrent = new ConcurrentDeck( testDeck );
+        buffer.rewind();
+        assertSameState( testDeck, DeckCodec.decode( buffer, concurrent ));
+        buffer.clear();
+        DeckCodec.encode( concurrent, buffer ).flip();
+        assertSameState( testDeck, DeckCodec.decode( buffer ));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void wrongCards()
+    {
+        ByteBuffer buffer = ByteBuffer.allocate( DeckCodec.maxEncodedSize( testDeck ));
+        DeckCodec.encode( testDeck, buffer ).flip();
+        Deck other = new Deck();
+        other.cardList.addAll( testDeck.cardList );
+        other.cardList.set( 52, Card.of( -1, 1 ));
+        DeckCodec.decode( buffer, other );
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void repeatedDiscard()
+    {
+        Deck deck = new Deck();
+        deck.addCard( 0, 0 );
+        deck.addCard( 0, 1 );
+        deck.burnCard();
+        deck.burnCard();
+        ByteBuffer buffer = ByteBuffer.allocate( DeckCodec.maxEncodedSize( deck ));
+        DeckCodec.encode( deck, buffer ).flip();
+        // the discard pile is last, one byte per slot: list the first card twice
+        buffer.put( buffer.limit() - 1, buffer.get( buffer.limit() - 2 ));
+        DeckCodec.decode( buffer );
+    }
+
+    @Test
+    public void unknownCardsNotKept()
+    {
+        Deck deck = new Deck();
+        deck.cardList.add( new Card( -77, 1234567 ));
+        ByteBuffer buffer = ByteBuffer.allocate( DeckCodec.maxEncodedSize( deck ));
+        DeckCodec.encode( deck, buffer ).flip();
+        assertEquals( new Card( -77, 1234567 ), DeckCodec.decode( buffer ).cardList.get( 0 ));
+        assertNotSame( Card.lookup( -77, 1234567 ), Card.lookup( -77, 1234567 ));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void badHeader()
+    {
+        DeckCodec.decode( ByteBuffer.wrap( new byte[] { 'D', 'K', 99, 0 } ));
+    }
+
+    private static void assertSameState( Deck expected, Deck actual )
+    {
+        assertEquals( expected.toString(), actual.toString() );
+        for (int owner : new int[] { 0, 1, 2, 3 })
+        {
+            assertEquals( expected.getHandByOwner( owner ), actual.getHandByOwner( owner ));
+        }
+        assertEquals( expected.getDiscards(), actual.getDiscards() );
+        assertEquals( expected.dealCardTo( 4 ), actual.dealCardTo( 4 ));
+        expected.returnHandFromOwner( 4, 0 );
+        actual.returnHandFromOwner( 4, 0 );
+    }
+}
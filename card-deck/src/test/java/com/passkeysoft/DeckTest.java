@@ -6,14 +6,25 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Random;
+import java.util.SplittableRandom;
 
 import static org.hamcrest.CoreMatchers.endsWith;
 import static org.hamcrest.CoreMatchers.startsWith;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
 
 public class DeckTest
 {
@@ -64,11 +75,67 @@ public class DeckTest
     @Test
     public void getFaceTest()
     {
+        assertEquals( "14S.png", testDeck.getFace( new Card( 3, 12 )).image );
+        assertNull( testDeck.getFace( new Card( 3, 13 )));
+        assertNull( testDeck.getFace( new Card( 9, 0 )));
+
+        // suits and values outside the dense table still work
+        Card odd = new Card( -1, 1000 );
+        assertNull( testDeck.getFace( odd ));
+        testDeck.addFace( odd, new Deck.Face( "odd.png", "Year of Plenty" ));
+        assertEquals( "Year of Plenty", testDeck.getFace( new Card( -1, 1000 )).description );
+        assertNull( testDeck.getFace( new Card( -1, 999 )));
     }
 
     @Test
     public void shuffleTest()
     {
+        List<Card> cards = new ArrayList<>( testDeck.cardList );
+        testDeck.setRandomSource( RandomSource.of( new SplittableRandom( 42 ))).shuffle();
+
+        // the dealt cards don't move, and the player's hand is unchanged
+        assertEquals( player1Hand, testDeck.getHandByOwner( 1 ));
+        List<Card> shuffled = testDeck.getHandByOwner( 0 );
+        assertEquals( 45, shuffled.size() );
+
+        // shuffling never touches the card list itself
+        assertEquals( cards, testDeck.cardList );
+
+        // the same seed produces the same order
+        Deck other = new Deck();
+        other.cardList.addAll( cards );
+        other.dealNewHandToPlayer( 1, 7 );
+        other.setRandomSource( RandomSource.of( new SplittableRandom( 42 ))).shuffle();
+        assertEquals( shuffled, other.getHandByOwner( 0 ));
+    }
+
+    @Test
+    public void seededReset()
+    {
+        long seed = testDeck.newSeed();
+        testDeck.reset( seed );
+        List<Card> deal = testDeck.dealNewHandToPlayer( 1, 7 );
+
+        // whatever happens in between, the same seed deals the same cards
+        testDeck.discard( deal.get( 0 ));
+        testDeck.shuffle();
+        testDeck.reset( seed );
+        assertEquals( deal, testDeck.dealNewHandToPlayer( 1, 7 ));
+
+        Deck other = new Deck();
+        other.cardList.addAll( testDeck.cardList );
+        other.reset( seed );
+        assertEquals( deal, other.dealNewHandToPlayer( 1, 7 ));
+
+        // a seeded shuffle never replaces, nor draws from, the deck's own source
+        for (Deck deck : new Deck[] { other, new ConcurrentDeck( other ) })
+        {
+            RandomSource own = RandomSource.of( new Random( 3 ));
+            deck.setRandomSource( own );
+            deck.reset( seed );
+            assertSame( own, deck.getRandomSource() );
+            assertEquals( new Random( 3 ).nextLong(), deck.newSeed() );
+        }
     }
 
     @Test
@@ -88,6 +155,30 @@ public class DeckTest
         assertEquals( 52, hand.size());
     }
 
+    @Test
+    public void recycle()
+    {
+        List<Card> initial = new ArrayList<>( testDeck.cardList );
+        testDeck.discard( player1Hand.get( 0 ));
+        testDeck.setRandomSource( RandomSource.seeded( 1 )).shuffle();
+        testDeck.addListener( (deck, change) -> { throw new AssertionError( "listener kept" ); } );
+
+        testDeck.recycle();
+        assertEquals( initial, testDeck.getHandByOwner( 0 ));
+        assertEquals( 0, testDeck.getDiscards().size() );
+        assertNull( testDeck.getChangesSince( testDeck.getSequence() - 1 ));
+        testDeck.dealCardTo( 1 );
+
+        DeckPool<Deck> pool = new DeckPool<>( Deck::new, 1 );
+        Deck deck = pool.acquire();
+        assertEquals( 0, pool.getIdleCount() );
+        pool.release( testDeck );
+        pool.release( deck );
+        assertEquals( 1, pool.getIdleCount() );
+        assertTrue( testDeck == pool.acquire() );
+        assertEquals( initial, testDeck.getHandByOwner( 0 ));
+    }
+
     @Test
     public void dealCardToPlayerBySuit()
     {
@@ -131,8 +222,8 @@ public class DeckTest
         // because order has not changed, the first card in the discard pile should be the first card discarded
         assertEquals( firstDiscarded, hand.get( 0 ) );
 
-        // Sort by "getRandom", and the first shall be last and the last shall be first.
-        hand.sort( Comparator.comparing( Card::getRandom ).reversed());
+        // The discard pile is last in, first out, so the first shall be last and the last shall be first.
+        hand = testDeck.getDiscards();
         assertEquals( lastDiscarded, hand.get( 0 ) );
         assertEquals( firstDiscarded, hand.get( 2 ) );
 
@@ -144,6 +235,100 @@ public class DeckTest
         assertEquals( 45, hand.size());
     }
 
+    @Test
+    public void getDiscards()
+    {
+        Card burned = testDeck.burnCard();
+        testDeck.discard( player1Hand.get( 3 ))
+            .discard( player1Hand.get( 5 ));
+        testDeck.dealNewHandToPlayer( 2, 2 );
+        testDeck.returnHandFromOwner( 2, Deck.DISCARD );
+
+        List<Card> discards = testDeck.getDiscards();
+        assertEquals( 5, discards.size() );
+        assertEquals( player1Hand.get( 5 ), discards.get( 2 ));
+        assertEquals( player1Hand.get( 3 ), discards.get( 3 ));
+        assertEquals( burned, discards.get( 4 ));
+
+        // a card dealt back out of the discards leaves the pile
+        testDeck.returnHandFromOwner( Deck.DISCARD, 0 );
+        assertEquals( 0, testDeck.getDiscards().size() );
+    }
+
+    @Test
+    public void fork()
+    {
+        testDeck.discard( player1Hand.get( 0 ));
+        Deck copy = testDeck.fork();
+        assertEquals( testDeck.toString(), copy.toString() );
+        assertEquals( testDeck.getHandByOwner( 1 ), copy.getHandByOwner( 1 ));
+        assertEquals( testDeck.getDiscards(), copy.getDiscards() );
+
+        // play in the fork doesn't disturb the original...
+        copy.dealNewHandToPlayer( 2, 5 );
+        copy.returnHandFromOwner( 1, Deck.DISCARD );
+        copy.shuffle();
+        assertEquals( 6, testDeck.getHandByOwner( 1 ).size() );
+        assertEquals( 0, testDeck.getHandByOwner( 2 ).size() );
+        assertEquals( 1, testDeck.getDiscards().size() );
+        assertEquals( 45, testDeck.getHandByOwner( 0 ).size() );
+
+        // ... nor the other way around
+        Card joker = new Card( 4, 0 );
+        testDeck.cardList.add( joker );
+        testDeck.addFace( joker, new Deck.Face( "joker.png", "Joker" ));
+        testDeck.reset();
+        assertEquals( 5, copy.getHandByOwner( 2 ).size() );
+        assertEquals( 7, copy.getDiscards().size() );
+        assertEquals( 52, copy.cardList.size() );
+        assertNull( copy.getFace( joker ));
+        assertEquals( -1, copy.getOwnerOf( joker ));
+    }
+
+    @Test
+    public void noJournal()
+    {
+        // a reset without a journal numbers nothing, but must not read as "no changes"
+        long start = testDeck.getSequence();
+        testDeck.reset();
+        assertNull( testDeck.getChangesSince( start ));
+        assertNull( new ConcurrentDeck( testDeck ).getChangesSince( start ));
+    }
+
+    @Test
+    public void journal()
+    {
+        List<Deck.Change> heard = new ArrayList<>(  );
+        DeckListener listener = (deck, change) -> heard.add( change );
+        testDeck.setJournalCapacity( 6 ).addListener( listener );
+        long start = testDeck.getSequence();
+        assertNull( testDeck.getChangesSince( start - 1 ));
+
+        Card dealt = testDeck.dealCardTo( 2 );
+        testDeck.discard( player1Hand.get( 0 ));
+        testDeck.returnHandFromOwner( 2, 0 );
+        List<Deck.Change> changes = testDeck.getChangesSince( start );
+        assertEquals( 3, changes.size() );
+        assertEquals( start + 1, changes.get( 0 ).sequence );
+        assertEquals( dealt, changes.get( 0 ).card );
+        assertEquals( 0, changes.get( 0 ).oldOwner );
+        assertEquals( 2, changes.get( 0 ).newOwner );
+        assertEquals( 1, changes.get( 1 ).oldOwner );
+        assertEquals( Deck.DISCARD, changes.get( 1 ).newOwner );
+        assertEquals( 0, changes.get( 2 ).newOwner );
+        assertEquals( 3, heard.size() );
+        assertEquals( changes.get( 2 ).toString(), heard.get( 2 ).toString() );
+        assertEquals( 0, testDeck.getChangesSince( testDeck.getSequence() ).size() );
+
+        // the journal holds the last 8 changes
+        testDeck.removeListener( listener );
+        testDeck.reset();
+        assertEquals( start + 10, testDeck.getSequence() );
+        assertNull( testDeck.getChangesSince( start + 1 ));
+        assertEquals( 8, testDeck.getChangesSince( start + 2 ).size() );
+        assertEquals( 3, heard.size() );
+    }
+
     @Test
     public void dealNewHandToPlayer()
     {
@@ -162,6 +347,53 @@ public class DeckTest
         assertEquals( 42, hand.size());     // original 52 minus 7 just dealt and 3 in the discard
     }
 
+    @Test
+    public void dealRound()
+    {
+        List<Card> undealt = testDeck.getHandByOwner( 0 );
+        List<List<Card>> hands = testDeck.dealRound( new int[] { 2, 3, 4 }, 5 );
+        assertEquals( 3, hands.size() );
+        assertEquals( undealt.subList( 0, 5 ), hands.get( 0 ));
+        assertEquals( undealt.subList( 10, 15 ), hands.get( 2 ));
+        assertEquals( hands.get( 1 ), testDeck.getHandByOwner( 3 ));
+
+        // the cards already held are kept
+        hands = testDeck.dealRoundRobin( new int[] { 1, 2 }, 3 );
+        assertEquals( undealt.get( 15 ), hands.get( 0 ).get( 0 ));
+        assertEquals( undealt.get( 16 ), hands.get( 1 ).get( 0 ));
+        assertEquals( undealt.get( 20 ), hands.get( 1 ).get( 2 ));
+        assertEquals( 10, testDeck.getHandByOwner( 1 ).size() );
+        assertEquals( 8, testDeck.getHandByOwner( 2 ).size() );
+
+        // running out of cards leaves the last hands short
+        hands = testDeck.dealRound( new int[] { 5, 6 }, 12 );
+        assertEquals( 12, hands.get( 0 ).size() );
+        assertEquals( 45 - 21 - 12, hands.get( 1 ).size() );
+        assertNull( testDeck.dealCardTo( 5 ));
+    }
+
+    @Test
+    public void returnHandFromOwner()
+    {
+        testDeck.dealNewHandToPlayer( 2, 5 );
+        List<Card> hand = testDeck.getHandByOwner( 2 );
+        testDeck.returnHandFromOwner( 2, 3 );
+        assertEquals( 0, testDeck.getHandByOwner( 2 ).size() );
+        assertEquals( hand, testDeck.getHandByOwner( 3 ));
+
+        // merging into an existing hand keeps the cards in deck order
+        testDeck.returnHandFromOwner( 1, 3 );
+        List<Card> merged = testDeck.getHandByOwner( 3 );
+        assertEquals( 12, merged.size() );
+        assertEquals( player1Hand.get( 0 ), merged.get( 0 ));
+
+        // a card added after the deck has been used is still indexed
+        Card joker = new Card( 4, 0 );
+        testDeck.cardList.add( joker );
+        assertEquals( 41, testDeck.getHandByOwner( 0 ).size() );
+        assertEquals( joker, testDeck.dealCardToPlayerBySuit( 4, 4 ));
+    }
+
     @Test
     public void buildCardAsJSON() throws JsonProcessingException
     {
@@ -176,6 +408,13 @@ public class DeckTest
             "\"img\":\"path/14S.png\",\n" +
             "\"description\":\"14S.png\"\n" +
             "}", jsonCard );
+
+        // the cached JSON is the same object every time, until the faces change
+        assertTrue( jsonCard == testDeck.buildCardAsJSON( card, "path/" ));
+        assertEquals( jsonCard.replace( "path/", "" ), testDeck.buildCardAsJSON( card, null ));
+        testDeck.addFace( card, new Deck.Face( "AS.png", "Ace of Spades" ));
+        assertThat( testDeck.buildCardAsJSON( card, "path/" ), endsWith( "\"img\":\"path/AS.png\",\n" +
+            "\"description\":\"Ace of Spades\"\n}" ));
     }
 
     @Test
@@ -208,11 +447,40 @@ public class DeckTest
             "}\n]\n}" ));
     }
 
+    @Test
+    public void writeHandAsJSON() throws IOException
+    {
+        testDeck.addFace( new Card( -1, 1000 ), new Deck.Face( "plenty.png", "Year of Plenty \u00e0 \ud83c\udca1" ));
+        List<Card> hand = testDeck.getHandByOwner( 1 );
+        hand.add( new Card( -1, 1000 ));
+        String expected = testDeck.buildHandAsJSON( hand, "path/" );
+
+        StringWriter writer = new StringWriter();
+        testDeck.writeHandAsJSON( hand, "path/", (Appendable) writer );
+        assertEquals( expected, writer.toString() );
+
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        testDeck.writeHandAsJSON( hand, "path/", stream );
+        assertEquals( expected, new String( stream.toByteArray(), StandardCharsets.UTF_8 ));
+
+        ByteBuffer buffer = ByteBuffer.allocate( 2048 );
+        testDeck.writeHandAsJSON( hand, "path/", buffer ).flip();
+        assertEquals( expected, StandardCharsets.UTF_8.decode( buffer ).toString() );
+    }
+
     @Test
     public void getMatchingCard()
     {
         Card ownedCard = player1Hand.get(0);
         Card card = new Card( ownedCard.getSuit(),ownedCard.getValue());
         assertEquals( ownedCard, testDeck.getMatchingCard( card, 1 ));
+        assertTrue( testDeck.isHeldBy( card, 1 ));
+        assertFalse( testDeck.isHeldBy( card, 2 ));
+
+        // cards outside the dense index are found as well
+        testDeck.addCard( 100, -3 );
+        assertFalse( testDeck.isHeldBy( Card.of( 100, -3 ), 1 ));
+        assertTrue( testDeck.isHeldBy( Card.of( 100, -3 ), 0 ));
+        assertNull( testDeck.getMatchingCard( Card.of( 100, -4 ), 0 ));
     }
 }
\ No newline at end of file
@@ -0,0 +1,98 @@
+package com.passkeysoft;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class RandomSourceTest
+{
+    @Test
+    public void secure()
+    {
+        RandomSource random = RandomSource.secure();
+        int[] counts = new int[52];
+        for (int i = 0; i < 52000; i++)
+        {
+            counts[random.nextInt( 52 )]++;
+        }
+        for (int count : counts)
+        {
+            assertTrue( 700 < count && count < 1300 );
+        }
+        assertEquals( 0, random.nextInt( 1 ));
+    }
+
+    @Test
+    public void secureFromManyThreads() throws InterruptedException
+    {
+        Set<List<Integer>> orders = ConcurrentHashMap.newKeySet();
+        List<Throwable> failures = Collections.synchronizedList( new ArrayList<>(  ));
+        List<Thread> threads = new ArrayList<>(  );
+        for (int i = 0; i < 4; i++)
+        {
+            Thread thread = new Thread( () -> {
+                try
+                {
+                    Deck deck = new Deck();
+                    for (int value = 0; value < 52; value++)
+                    {
+                        deck.addCard( 0, value );
+                    }
+                    RandomSource source = RandomSource.secure();
+                    assertSame( source, deck.getRandomSource() );
+                    for (int n = 0; n < 1000; n++)
+                    {
+                        deck.reset();
+                        // every shuffle is a valid order of the whole deck
+                        List<Integer> order = new ArrayList<>( 52 );
+                        boolean[] seen = new boolean[52];
+                        for (Card card = deck.dealCardTo( 1 ); null != card; card = deck.dealCardTo( 1 ))
+                        {
+                            assertFalse( seen[card.getValue()] );
+                            seen[card.getValue()] = true;
+                            order.add( card.getValue() );
+                        }
+                        assertEquals( 52, order.size() );
+                        orders.add( order );
+                    }
+                    // one source, shared by every deck on every thread
+                    assertSame( source, RandomSource.secure() );
+                }
+                catch (Throwable t)
+                {
+                    failures.add( t );
+                }
+            } );
+            threads.add( thread );
+            thread.start();
+        }
+        for (Thread thread : threads)
+        {
+            thread.join();
+        }
+        if (!failures.isEmpty())
+            throw new AssertionError( "A shuffling thread failed", failures.get( 0 ));
+        // no two of the 4000 shuffles, on the same thread or on different ones, came out alike
+        assertEquals( 4000, orders.size() );
+    }
+
+    @Test
+    public void seeded()
+    {
+        RandomSource a = RandomSource.seeded( 99 );
+        RandomSource b = RandomSource.seeded( 99 );
+        for (int i = 0; i < 100; i++)
+        {
+            assertEquals( a.nextLong(), b.nextLong() );
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.passkeysoft;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ShoeTest
+{
+    private Shoe shoe;
+
+    @Before
+    /*
+     * Builds a six deck shoe of standard 52 card decks.
+     */
+    public void setUp()
+    {
+        Deck deck = new Deck();
+        for (int suit = 0; suit < 4; suit++)
+        {
+            for (int value = 0; value < 13; value++)
+            {
+                deck.addCard( suit, value );
+            }
+        }
+        deck.addFace( Card.of( 3, 12 ), new Deck.Face( "14S.png", "Ace of Spades" ));
+        shoe = new Shoe( deck, 6 );
+    }
+
+    @Test
+    public void matchingCopies()
+    {
+        Card ace = Card.of( 3, 12 );
+        shoe.reset();
+        while (null != shoe.dealCardTo( 1 ))
+        {
+        }
+        assertTrue( shoe.isHeldBy( ace, 1 ));
+        assertFalse( shoe.isHeldBy( ace, 0 ));
+
+        // each copy is found in turn, until none is left
+        for (int copy = 0; copy < 6; copy++)
+        {
+            assertEquals( ace, shoe.getMatchingCard( ace, 1 ));
+            shoe.discard( ace, 1 );
+        }
+        assertNull( shoe.getMatchingCard( ace, 1 ));
+        assertTrue( shoe.isHeldBy( ace, Deck.DISCARD ));
+    }
+
+    @Test
+    public void dealing()
+    {
+        assertEquals( 6, shoe.getNumDecks() );
+        assertEquals( 312, shoe.getHandByOwner( 0 ).size() );
+        assertEquals( "Ace of Spades", shoe.getFace( Card.of( 3, 12 )).description );
+
+        shoe.reset();
+        for (int player = 1; player <= 7; player++)
+        {
+            shoe.dealNewHandToPlayer( player, 2 );
+        }
+        shoe.burnCard();
+        assertEquals( 15, shoe.getCardsDealt() );
+        assertEquals( 2, shoe.getHandByOwner( 7 ).size() );
+
+        // cards returned to the shoe are dealt again
+        List<Card> hand = shoe.getHandByOwner( 1 );
+        shoe.returnHandFromOwner( 1, 0 );
+        assertEquals( hand.get( 0 ), shoe.dealCardTo( 8 ));
+        shoe.returnHandFromOwner( 8, 0 );
+
+        // deal the whole shoe
+        int dealt = 0;
+        while (null != shoe.dealCardTo( 9 ))
+        {
+            dealt++;
+        }
+        assertEquals( 312 - 13, dealt );
+        assertNull( shoe.dealCardTo( 9 ));
+
+        // the player's own copy is discarded, whoever else holds one
+        Card card = shoe.getHandByOwner( 7 ).get( 0 );
+        shoe.discard( card, 7 );
+        assertEquals( 1, shoe.getHandByOwner( 7 ).size() );
+        assertEquals( dealt, shoe.getHandByOwner( 9 ).size() );
+        assertEquals( 2, shoe.getDiscards().size() );     // and the burned card
+        shoe.discard( card, 8 );     // holds no copy
+        assertEquals( 2, shoe.getDiscards().size() );
+    }
+
+    @Test
+    public void cutCard()
+    {
+        shoe.setPenetration( 0.75 ).reset();
+        for (int i = 0; i < 233; i++)
+        {
+            shoe.dealCardTo( 1 + i % 7 );
+        }
+        assertFalse( shoe.isCutCardReached() );
+        shoe.burnCard();
+        assertTrue( shoe.isCutCardReached() );
+
+        shoe.reset();
+        assertFalse( shoe.isCutCardReached() );
+        assertEquals( 0, shoe.getCardsDealt() );
+    }
+}
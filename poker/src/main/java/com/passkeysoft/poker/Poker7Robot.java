@@ -1,6 +1,7 @@
 package com.passkeysoft.poker;
 
 import com.passkeysoft.Card;
+import poker.PartialHandRanker;
 import poker.Poker;
 
 import java.util.List;
@@ -8,9 +9,17 @@ import java.util.List;
 import static com.passkeysoft.poker.PokerDeck.*;
 import static com.passkeysoft.poker.PokerDeck.ACE;
 import static com.passkeysoft.poker.PokerGame.FOLDED;
+import static poker.PartialHandRanker.*;
 
 class Poker7Robot
 {
+    // Thresholds for betting and folding
+    private static final int TRIP_TENS = PartialHandRanker.rankOf( THREE_OF_A_KIND, TEN );
+    private static final int TRIP_JACKS = PartialHandRanker.rankOf( THREE_OF_A_KIND, JACK );
+    private static final int TENS_AND_SIXES = PartialHandRanker.rankOf( TWO_PAIR, TEN, SIX );
+    private static final int EIGHTS_NINE_KICKER = PartialHandRanker.rankOf( ONE_PAIR, EIGHT, NINE );
+    private static final int JACK_TEN_EIGHT = PartialHandRanker.rankOf( HIGH_CARD, JACK, TEN, EIGHT );
+
     static int actLikeARobot( PokerPlayer robot, PokerGame<PokerPlayer> game )
     {
         try
@@ -20,47 +29,33 @@ class Poker7Robot
         catch( InterruptedException ignore ) {}
         // get my hand for the round, evaluate it then check, bet or fold depending on the evaluation.
         List<Card> myHand = game.getCardsForRound( game.playerList.indexOf( robot ), 0);
-        int handValue = Poker.createBitmap( myHand );
-        // count the number of bits set
-        int uniqueCardValues = Poker.countBits( handValue );
         int myBet = game.highBet;
-        int rank = handValue;
+        int rank = PartialHandRanker.rank( myHand );
+        int category = PartialHandRanker.categoryOf( rank );
         boolean isFlushable = Poker.isFlush( myHand );
 
         // should return the highest card in the possible straight.
         int straight = Poker.isStraight( myHand );
-        // for 5 cards the lowest possible ace high is 4111, lowest possible king high is 2063, lowest possible queen
-        // high is 1039.
 
         switch( game.round )
         {
-            case 0: // three cards visible. Highest possible no pair hand is 7808
-                // We probably want hands with more than one high card.
-                if (uniqueCardValues < 3 )
+            case 0: // three cards visible.
+                if (THREE_OF_A_KIND == category)
                 {
-                    rank = 7810 + Poker.threeTable.get( Poker.computeIndex( myHand ) );
-                }
-                // 7991 Highest 3ofk value for three cards
-                if (rank > 7978)
-                {   // 7991 Highest 3ofk value for three cards
-                    // 7979 Lowest  3ofk value for three cards. This hand will probably win. Bet a low pair to win
-                    // now, but slow play a high pair to encourage pot growth
-                    if (rank < 7987)    // 3 tens
+                    // This hand will probably win. Bet a low trips to win now, but slow play high trips to
+                    // encourage pot growth
+                    if (rank < TRIP_TENS)
                     {
                         myBet += 2;
                     }
                 }
-                else if (rank > 7810)
+                else if (ONE_PAIR == category)
                 {
-                    // a pair or better. We probably want to bet a high pair and call a low pair.
-                    // 7977 Highest pair value for three cards
-//                    if (myBet == game.highBet)      // How is this not always true?
+                    // a pair. We probably want to bet a high pair and call a low pair.
+                    if (rank > EIGHTS_NINE_KICKER && 0 == game.highBet)
                     {
-                        if (rank > 7895 && 0 == game.highBet)
-                        {
-                            // don't raise if someone ahead of me has already raised; could lead to an infinite loop
-                            myBet += 2;
-                        }
+                        // don't raise if someone ahead of me has already raised; could lead to an infinite loop
+                        myBet += 2;
                     }
                 }
                 else if (myBet > 0)
@@ -69,35 +64,17 @@ class Poker7Robot
                     {
                         // check other player's hands for live cards. The fewer the better.
                     }
-                    else if (rank < 832)
+                    else if (rank < JACK_TEN_EIGHT)
                     {
                         // Anything lower than J-10 - 8 should be folded when faced with a bet of any kind.
                         myBet = FOLDED;
                     }
                     else
                     {
-                        int high, kicker;
                         // At least a jack high. Check for liveness of my hand, and fold if my highest card isn't live
-                        if (rank < 1027)    // lowest possible queen high (3 cards)
-                        {
-                            high = JACK;    // 832 is highest possible jack high not straighty.
-                            kicker = rank;
-                        }
-                        else if (rank < 2051)   // lowest possible king high (3 cards)
-                        {
-                            high = QUEEN;       // 1281 is Q 10
-                            kicker = 1281;
-                        }
-                        else if (rank < 4099)   // lowest possible ace high (3 cards)
-                        {
-                            high = KING;       // 2305 is K 10
-                            kicker = 2305;
-                        }
-                        else                    // 6656 is the highest possible ace high that is not straighty
-                        {
-                            high = ACE;         // 4353 is A 10
-                            kicker = 4353;
-                        }
+                        int high = PartialHandRanker.topRankOf( rank );
+                        // any jack high will do, higher cards want at least a ten to go with them
+                        int kicker = (JACK == high) ? rank : PartialHandRanker.rankOf( HIGH_CARD, high, TEN, DEUCE );
                         int howLive = game.getLiveness( robot, high );
                         if (1 == howLive)
                         {
@@ -114,23 +91,13 @@ class Poker7Robot
                 }
                 break;
             case 1: // four cards visible
-                if (uniqueCardValues < 4)
-                    rank = 7810 + Poker.fourTable.get( Poker.computeIndex( myHand ) );
-                // 8642 pair of queens with a ten kicker for four cards;
-                // 8835 Highest pair value for four cards
-                // 8850 lowest two pair value for four cards;
-                // 8882 two pair value 10s and 6s for four cards;
-                // 8927 Highest two pair value;
-                // 8931 lowest 3ofk value for four cards
-                // 9047 trip jacks and a deuce.
-                // 9097 Highest 3ofk value for four cards
-                if (rank > 9046)
+                if (rank >= TRIP_JACKS)
                 {
                     // trip jacks or higher, always bet; low trips never fold
                     if (0 == game.highBet)
                         myBet += 2;
                 }
-                else if (rank > 8882)
+                else if (rank > TENS_AND_SIXES)
                 {
                     // high two pair or low trips; go ahead and bet, but just call lower two pair
                     if (0 == game.highBet)
@@ -138,30 +105,16 @@ class Poker7Robot
                 }
                 else if (myBet > 0)
                 {
-                    if (rank < 7900)
+                    if (HIGH_CARD == category)
                     {
                         // no pair and a bet; just fold
                         myBet = FOLDED;
                     }
                     else
                     {
-                        // we must have a single pair. check for live cards and go ahead and call if the pair is live.
-                        // find the pair in my hand
-                        int high = -1;
-                        for (int i = 0; i < myHand.size(); i++ )
-                        {
-                            Card card = myHand.get( i );
-                            for (int j = i + 1; j < myHand.size(); j++ )
-                            {
-                                if (card.getValue() == myHand.get( j ).getValue())
-                                {
-                                    high = card.getValue();
-                                    break;
-                                }
-                            }
-                            if (high > -1)
-                                break;
-                        }
+                        // we must have a pair, or a low two pair. check for live cards and go ahead and call if the
+                        // (higher) pair is live.
+                        int high = PartialHandRanker.topRankOf( rank );
                         int howLive = game.getLiveness( robot, high );
                         if (1 == howLive)
                         {
@@ -178,28 +131,11 @@ class Poker7Robot
                 }
                 System.out.println( robot.getPlayerName() + "'s rank for 4 cards is " + rank );
                 break;
-            case 2: // five cards
-                // 9109 is the highest hand by my previous method. For evaluate(), lower is better so normalize it
-                // by subtracting from a higher value.
-                rank = 13000 - Poker.evaluate( myHand ); // Royal flush will result in 13000 ranking.
+            default:    // five cards or more, evaluate the best 5 of them
                 // we have a full hand. evaluate my chances given everone else's possible hands,
                 // and compare that to pot odds.
-                System.out.println( robot.getPlayerName() + "'s rank for 5 cards of type "
-                    + Poker.pokerTypes[ Poker.typeOfHand( myHand )]
-                    + " is " + rank );
-                break;
-            case 3: // six cards
-                List<Card> hand = Poker.get5CardsList( myHand );
-                rank = 13000 - Poker.evaluate( hand );
-                System.out.println( robot.getPlayerName() + "'s rank for 6 cards of type "
-                    + Poker.pokerTypes[ Poker.typeOfHand( hand )]
-                    + " is " + rank );
-                break;
-            default:    // five cards or more visible, evaluate the best 5 of seven
-                hand = Poker.getBest5CardsOf7( myHand );
-                rank = 13000 - Poker.evaluate( hand );
-                System.out.println( robot.getPlayerName() + "'s rank for 7 cards of type "
-                    + Poker.pokerTypes[ Poker.typeOfHand( hand )]
+                System.out.println( robot.getPlayerName() + "'s rank for " + myHand.size() + " cards of type "
+                    + PartialHandRanker.nameOf( rank )
                     + " is " + rank );
                 // What to do, What to do?
         }
@@ -1,12 +1,12 @@
 package com.passkeysoft.poker;
 
 import com.passkeysoft.Card;
-import com.passkeysoft.Deck;
+import com.passkeysoft.CompactDeck;
 
 import java.util.Arrays;
 import java.util.List;
 
-public class PokerDeck extends Deck
+public class PokerDeck extends CompactDeck
 {
     // Suits
     static final int CLUBS = 0x8;
@@ -35,7 +35,7 @@ public class PokerDeck extends Deck
 
     private static int[] suits = {1, 2, 4, 8 };
 
-    static Card back = new Card( 0, 13 );
+    static Card back = Card.of( 0, 13 );
 
     PokerDeck()
     {
@@ -43,7 +43,7 @@ public class PokerDeck extends Deck
         {
             for (int value = 0; value < 13; value++)
             {
-                Card newCard = new Card( suits[ suit ], value );
+                Card newCard = Card.of( suits[ suit ], value );
 
                 StringBuilder sb = new StringBuilder( String.valueOf( value + 2 ));
                 sb.append(
@@ -59,4 +59,10 @@ public class PokerDeck extends Deck
         }
         addFace( back, new Face( "gray_back.png", "Back of a card" ));
     }
+
+    @Override
+    public PokerDeck fork()
+    {
+        return (PokerDeck) super.fork();
+    }
 }
@@ -2,19 +2,23 @@ package com.passkeysoft.poker;
 
 import com.passkeysoft.Card;
 import com.passkeysoft.Deck;
+import com.passkeysoft.DeckPool;
 import com.passkeysoft.cardgameserver.CardGame;
+import poker.PartialHandRanker;
 import poker.Poker;
 
 import java.util.ArrayList;
 import java.util.List;
 
-import static poker.Tables.*;
 
 @SuppressWarnings("UnusedReturnValue")
 public class PokerGame<T extends PokerPlayer> extends CardGame<T>
 {
     static int FOLDED = -1;
 
+    // decks are recycled from one game to the next rather than built again
+    private static final DeckPool<PokerDeck> deckPool = new DeckPool<>( PokerDeck::new, 64 );
+
     // ------------- instance methods and variables for this implementation
     int round;  // 5 rounds of betting, each representing a card that is "up" plus "down and dirty"
     int pot = 0;
@@ -22,6 +26,12 @@ public class PokerGame<T extends PokerPlayer> extends CardGame<T>
     int firstPlayer;
     String lastAction = "";
 
+    // set once the game is closed or over; the deck goes back to the pool when its threads have
+    // stopped
+    private volatile boolean closed = false;
+    private boolean running = false;
+    private Thread monitorThread;
+
     /**
      * Constructor
      *
@@ -33,17 +43,91 @@ public class PokerGame<T extends PokerPlayer> extends CardGame<T>
     {
         super( timeout, monitor );
         pause();
-        deck = new PokerDeck();
+        deck = deckPool.acquire();
         round = 0;
     }
 
+    /**
+     * Ends this game for good and hands its deck back to the pool, to be dealt at another table.
+     * The caller must first make the game unreachable (the router clears it from its metadata),
+     * so that no new request can find it. The play thread is woken so that it ends, and ends the
+     * monitor in turn; the deck is released only once both have stopped, or at once if the game
+     * was never started. From this point {@link #getDeck()} throws an IllegalStateException, so
+     * a request still in flight fails rather than touching a deck another table may be using.
+     * <p>
+     * A game which ends by itself, its play thread stopping at game over, releases its deck in
+     * the same way without being closed.
+     */
+    synchronized void close()
+    {
+        if (closed)
+            return;
+        closed = true;
+        setGameOver();
+        notifyAll();
+        if (!running)
+            releaseDeck();
+    }
+
+    private synchronized void releaseDeck()
+    {
+        if (null != deck)
+        {
+            deckPool.release( (PokerDeck) deck );
+            deck = null;
+        }
+    }
+
+    @Override
+    public synchronized Thread start()
+    {
+        running = null != monitor;
+        monitorThread = super.start();
+        return monitorThread;
+    }
+
+    @Override
+    public void run()
+    {
+        super.run();    // interrupts the monitor as it ends
+        if (!isGameOver())
+            return;     // no timer (a timeout of zero); the game goes on without this thread
+        Thread thread;
+        synchronized (this)
+        {
+            thread = monitorThread;
+        }
+        try
+        {
+            if (null != thread)
+                thread.join();
+        }
+        catch( InterruptedException ie )
+        {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this)
+        {
+            // closed or not, the game is over and nothing will deal from its deck again
+            running = false;
+            closed = true;
+            releaseDeck();
+        }
+    }
+
     void restart()
     {
+        getDeck();  // fails if the game has been closed
         super.restart( 0, false );  // sets roundOver to false and paused to true
         round = pot = highBet = 0;
+        int[] players = new int[getNumPlayers()];
+        for (int i = 1; i <=  getNumPlayers(); i++)
+        {
+            players[i - 1] = i;
+        }
+        getDeck().dealRound( players, 7 );
         for (int i = 1; i <=  getNumPlayers(); i++)
         {
-            dealNewHandToPlayer( i );
             PokerPlayer player = playerList.get( i );
             player.newGame();
             // collect ante
@@ -52,8 +136,15 @@ public class PokerGame<T extends PokerPlayer> extends CardGame<T>
         }
      }
 
+    /**
+     * @return this game's deck.
+     * @throws IllegalStateException if the game has been closed, and its deck handed back to the
+     *                               pool.
+     */
     PokerDeck getDeck()
     {
+        if (closed)
+            throw new IllegalStateException( "The game is closed, and its deck back in the pool." );
         return (PokerDeck) deck;
     }
 
@@ -74,8 +165,8 @@ public class PokerGame<T extends PokerPlayer> extends CardGame<T>
         if (0 == player)
             throw new IllegalArgumentException( "The player identifier must never be zero." );
 
-        deck.dealNewHandToPlayer( player, 7 );
-        return deck.getHandByOwner( player );
+        getDeck().dealNewHandToPlayer( player, 7 );
+        return getDeck().getHandByOwner( player );
     }
 
     PokerPlayer finalizePlay()
@@ -109,7 +200,7 @@ public class PokerGame<T extends PokerPlayer> extends CardGame<T>
                 // this player folded, but his existing bet is still good
                 player.withdraw();
                 // discard his hand
-                deck.returnHandFromOwner( playerNum, Deck.DISCARD );
+                getDeck().returnHandFromOwner( playerNum, Deck.DISCARD );
                 lastAction = String.format("%s folded", player.getPlayerName());
             }
             // By setting the bet before calling getNextPlayer it won't return null if the bets aren't equal
@@ -151,11 +242,9 @@ public class PokerGame<T extends PokerPlayer> extends CardGame<T>
     @Override
     public int getScoreForPlayer( int playerId )
     {
-        List<Card> bestHand = deck.getHandByOwner( playerId );
-        if (7 == bestHand.size())
-            bestHand = Poker.getBest5CardsOf7( bestHand );
-        if (bestHand.size() > 0)
-            return Poker.evaluate( bestHand );
+        int[] hand = getDeck().getEncodedHand( playerId );
+        if (hand.length > 0)
+            return Poker.evaluateBest( hand, 0, hand.length );
         else
             return 8000;
     }
@@ -193,44 +282,7 @@ public class PokerGame<T extends PokerPlayer> extends CardGame<T>
                 PokerPlayer player = playerList.get( i );
                 if (!player.isWithdrawn())
                 {
-                    List<Card> hand = getCardsForRound( i, 2 );
-                    int handValue = Poker.createBitmap( hand );
-
-                    // count the number of bits set
-                    int count = 0;
-                    for (int j = 0; j < 13; j++)
-                    {
-                        int test = handValue >> j;
-                        test &= 1;
-                        if (0 != test)
-                            count++;
-
-                    }
-                    if (count != hand.size())
-                    {
-                        if (2 == hand.size())
-                        {
-                            // a pair. just add the card value to the base
-                            handValue = 7808 + hand.get( 0 ).getValue();
-                        }
-                        else
-                        {
-                            // do the prime multiplication thing.
-                            int product = 1;
-                            for (Card card : hand)
-                            {
-                                product *= PRIMES[card.getValue()];
-                            }
-                            if (3 == hand.size())
-                            {
-                                handValue = 7808 + Poker.threeTable.get( product );
-                            }
-                            if (4 == hand.size())
-                            {
-                                handValue = 7808 + Poker.fourTable.get( product );
-                            }
-                        }
-                    }
+                    int handValue = PartialHandRanker.rank( getCardsForRound( i, 2 ));
                     if (handValue > bestScore)
                     {
                         firstPlayer = i;
@@ -281,7 +333,7 @@ public class PokerGame<T extends PokerPlayer> extends CardGame<T>
 
     void shuffle()
     {
-        deck.shuffle();
+        getDeck().shuffle();
     }
 
     void resetCurrentPlayer()
@@ -325,7 +377,7 @@ public class PokerGame<T extends PokerPlayer> extends CardGame<T>
         {
             if (null != player && whosAsking != player && !player.isWithdrawn())
             {
-                List<Card> hand = deck.getHandByOwner( playerList.indexOf( player ) );
+                List<Card> hand = getDeck().getHandByOwner( playerList.indexOf( player ) );
                 for (int i = 2; i < round + 3; i++)
                 {
                     if (cardValue == hand.get( i ).getValue())
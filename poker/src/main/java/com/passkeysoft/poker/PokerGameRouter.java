@@ -105,20 +105,32 @@ public class PokerGameRouter
                 // run through the game list and see if there is an abandoned game; if so, use it.
                 for (CardGameMetadata<PokerGame<PokerPlayer>, PokerPlayer> gameIter : gameList )
                 {
-                    if (!gameIter.isStarted() && 30000 < (System.currentTimeMillis() - gameIter.whenCreated()))
+                    boolean abandoned = !gameIter.isStarted()
+                        && 30000 < (System.currentTimeMillis() - gameIter.whenCreated());
+                    boolean over = null != gameIter.theGame && gameIter.theGame.isGameOver();
+                    if (abandoned || over)
                     {
-                        // this game was started more than 5 minutes ago and is not started. Recycle it.
+                        // this game was created a while ago and never started, or has ended. Recycle it.
                         game = gameIter;
+                        // Drop the old game before closing it, so no new request can reach it.
+                        // Its deck goes back to the pool once its threads have stopped; until
+                        // then a request already holding the game fails on getDeck().
+                        PokerGame<PokerPlayer> oldGame = game.theGame;
                         game.clear( playerName );
+                        if (null != oldGame)
+                            oldGame.close();
                         break;
                     }
                 }
                 if (null == game)
                 {
                     game = new CardGameMetadata<>( playerName );
+                    gameList.add( game );
+                }
+                if (null == game.theGame)
+                {
                     PokerServer.Monitor monitor = new PokerServer().new Monitor( game );
                     game.theGame = new PokerGame<>( 60000, monitor );
-                    gameList.add( game );
                 }
                 updateGameList();
             }
@@ -184,8 +184,10 @@ class PokerServer
         @Override
         public void run()
         {
-            // We'll get notified when the play is over.
-            while (null != gameMeta.getTheGame() && !gameMeta.getTheGame().isGameOver()) try
+            // We'll get notified when the play is over. Stop once the game is over, or once the
+            // router has dropped it for another.
+            PokerGame<PokerPlayer> myGame = gameMeta.getTheGame();
+            while (null != myGame && myGame == gameMeta.getTheGame() && !myGame.isGameOver()) try
             {
                 PokerPlayer player = null;
                 synchronized (this)
@@ -375,8 +377,8 @@ class PokerServer
                     .append( playerIdx )
                     .append( ",\"stake\":" )
                     .append( player.stake )
-                    .append( ",\"hand\":" )
-                    .append( theGame.buildHandAsJSON( "faces/", partial ));
+                    .append( ",\"hand\":" );
+                theGame.writeHandAsJSON( "faces/", partial, sb );
                 sb.append( "}" );
                 first = false;
             }
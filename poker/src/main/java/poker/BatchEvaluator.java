@@ -0,0 +1,142 @@
+package poker;
+
+import com.passkeysoft.CardCodec;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Evaluates large numbers of hands at once, for simulations and analysis. The hands are packed
+ * by {@link CardCodec} and laid end to end in a single int array, and their values are written
+ * to an int or short array, one per hand, on the same scale as {@link Poker#evaluate(java.util.List)}
+ * (1 for a royal flush to 7462 for the worst high card). Hands of 6 or 7 cards are valued by
+ * their best 5 cards.
+ * <p>
+ * Batches of more than a few thousand hands are split between the threads of a
+ * {@link ForkJoinPool}, the common pool unless another is given, so throughput grows with the
+ * number of cores. Smaller batches are evaluated on the calling thread.
+ */
+@SuppressWarnings({"WeakerAccess"})
+public final class BatchEvaluator
+{
+    /** Batches of up to this many hands are not split. */
+    static final int THRESHOLD = 4096;
+
+    private BatchEvaluator()
+    {
+    }
+
+    /**
+     * Evaluates a batch of hands in the common {@link ForkJoinPool}.
+     *
+     * @param hands        the packed cards of the hands, end to end.
+     * @param cardsPerHand the number of cards in each hand, from 5 to 7.
+     * @param values       receives the value of each hand; its length is the number of hands.
+     */
+    public static void evaluate( int[] hands, int cardsPerHand, int[] values )
+    {
+        evaluate( hands, cardsPerHand, values, null, ForkJoinPool.commonPool() );
+    }
+
+    /**
+     * Evaluates a batch of hands in the common {@link ForkJoinPool}, into a short array, which
+     * is all the values need.
+     *
+     * @param hands        the packed cards of the hands, end to end.
+     * @param cardsPerHand the number of cards in each hand, from 5 to 7.
+     * @param values       receives the value of each hand; its length is the number of hands.
+     */
+    public static void evaluate( int[] hands, int cardsPerHand, short[] values )
+    {
+        evaluate( hands, cardsPerHand, null, values, ForkJoinPool.commonPool() );
+    }
+
+    /**
+     * Evaluates a batch of hands in the given {@link ForkJoinPool}.
+     *
+     * @param hands        the packed cards of the hands, end to end.
+     * @param cardsPerHand the number of cards in each hand, from 5 to 7.
+     * @param values       receives the value of each hand; its length is the number of hands.
+     * @param pool         the pool to run large batches in.
+     */
+    public static void evaluate( int[] hands, int cardsPerHand, int[] values, ForkJoinPool pool )
+    {
+        evaluate( hands, cardsPerHand, values, null, pool );
+    }
+
+    /**
+     * Evaluates a batch of hands in the given {@link ForkJoinPool}, into a short array.
+     *
+     * @param hands        the packed cards of the hands, end to end.
+     * @param cardsPerHand the number of cards in each hand, from 5 to 7.
+     * @param values       receives the value of each hand; its length is the number of hands.
+     * @param pool         the pool to run large batches in.
+     */
+    public static void evaluate( int[] hands, int cardsPerHand, short[] values, ForkJoinPool pool )
+    {
+        evaluate( hands, cardsPerHand, null, values, pool );
+    }
+
+    private static void evaluate( int[] hands, int cardsPerHand, int[] ints, short[] shorts,
+                                  ForkJoinPool pool )
+    {
+        if (5 > cardsPerHand || cardsPerHand > 7)
+            throw new IllegalArgumentException( "Between 5 and 7 cards are required." );
+        int count = (null != ints) ? ints.length : shorts.length;
+        if ((long) count * cardsPerHand > hands.length)
+            throw new IllegalArgumentException( "There are fewer than " + count + " hands of "
+                + cardsPerHand + " cards" );
+        Batch batch = new Batch( hands, cardsPerHand, ints, shorts, 0, count );
+        if (count <= THRESHOLD)
+            batch.compute();
+        else
+            pool.invoke( batch );
+    }
+
+    /**
+     * Evaluates the hands from one index to another, splitting itself in two until there are
+     * few enough.
+     */
+    private static final class Batch extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final int[] hands;
+        private final int cardsPerHand;
+        private final int[] ints;
+        private final short[] shorts;
+        private final int from;
+        private final int to;
+
+        Batch( int[] hands, int cardsPerHand, int[] ints, short[] shorts, int from, int to )
+        {
+            this.hands = hands;
+            this.cardsPerHand = cardsPerHand;
+            this.ints = ints;
+            this.shorts = shorts;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (to - from > THRESHOLD)
+            {
+                int middle = (from + to) >>> 1;
+                invokeAll( new Batch( hands, cardsPerHand, ints, shorts, from, middle ),
+                    new Batch( hands, cardsPerHand, ints, shorts, middle, to ));
+                return;
+            }
+            for (int i = from, offset = from * cardsPerHand; i < to; i++, offset += cardsPerHand)
+            {
+                int value = (5 == cardsPerHand) ? Poker.evaluate( hands, offset )
+                                                : Poker.evaluateBest( hands, offset, cardsPerHand );
+                if (null != ints)
+                    ints[i] = value;
+                else
+                    shorts[i] = (short) value;
+            }
+        }
+    }
+}
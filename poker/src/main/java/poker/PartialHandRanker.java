@@ -0,0 +1,295 @@
+package poker;
+
+import com.passkeysoft.Card;
+import com.passkeysoft.CardCodec;
+
+import java.util.List;
+
+/**
+ * Ranks stud poker hands of any size from 1 to 7 cards on a single scale, so that a player's
+ * visible cards can be compared with another's, or with a threshold, at every street. Higher
+ * ranks are better.
+ * <p>
+ * A rank is made of the category of the hand (high card, one pair and so on up to a straight
+ * flush) followed by up to five card ranks, most significant first: the ranks of the groups of
+ * cards in the hand, larger groups before smaller and higher ranks before lower. A pair of
+ * kings with a seven and a four is (ONE_PAIR, KING, SEVEN, FOUR); a full house of tens over
+ * threes is (FULL_HOUSE, TEN, TREY); a straight is ranked by its top card alone. Hands of fewer
+ * than five cards can't be straights or flushes. Use {@link #rankOf(int, int...)} to build a
+ * rank to compare with.
+ * <p>
+ * Every rank is looked up in tables built when the class is loaded: hands of up to four cards
+ * by the sorted ranks of the cards, and larger hands by their value from
+ * {@link Poker#evaluateBest(List)}.
+ */
+@SuppressWarnings({"WeakerAccess"})
+public final class PartialHandRanker
+{
+    // Categories, in increasing order of strength
+    public static final int HIGH_CARD = 0;
+    public static final int ONE_PAIR = 1;
+    public static final int TWO_PAIR = 2;
+    public static final int THREE_OF_A_KIND = 3;
+    public static final int STRAIGHT = 4;
+    public static final int FLUSH = 5;
+    public static final int FULL_HOUSE = 6;
+    public static final int FOUR_OF_A_KIND = 7;
+    public static final int STRAIGHT_FLUSH = 8;
+
+    // Each card rank is held as a base 14 digit, one more than the rank, so that a missing card
+    // (a digit of 0) is lower than a deuce.
+    private static final int BASE = 14;
+    private static final int DIGITS = 5;
+    private static final int CATEGORY = 14 * 14 * 14 * 14 * 14;
+
+    // by the sorted ranks of 1, 2, 3 or 4 cards
+    private static final int[][] partial = new int[5][];
+    // by the value of the best five cards, from 1 to 7462
+    private static final int[] byScore = new int[7463];
+
+    static
+    {
+        for (int size = 1; size <= 4; size++)
+        {
+            partial[size] = new int[(int) Math.pow( 13, size )];
+            addPartialHands( new int[13], 12, size, size );
+        }
+        // every five card hand without a flush, and every flush
+        addFullHands( new int[13], 12, 5 );
+        for (int bitmap = 0; bitmap < 1 << 13; bitmap++)
+        {
+            if (5 == Integer.bitCount( bitmap ))
+            {
+                int[] counts = new int[13];
+                for (int rank = 0; rank < 13; rank++)
+                {
+                    counts[rank] = (bitmap >> rank) & 1;
+                }
+                int score = Flushes.table[bitmap];
+                byScore[score] = rankOfFiveCards( counts, score );
+            }
+        }
+    }
+
+    private PartialHandRanker()
+    {
+    }
+
+    /**
+     * Builds a rank.
+     *
+     * @param category the category of the hand, HIGH_CARD to STRAIGHT_FLUSH.
+     * @param ranks    up to five card ranks (DEUCE to ACE), most significant first.
+     * @return the rank
+     */
+    public static int rankOf( int category, int... ranks )
+    {
+        int rank = 0;
+        for (int i = 0; i < DIGITS; i++)
+        {
+            rank = rank * BASE + ((i < ranks.length) ? ranks[i] + 1 : 0);
+        }
+        return category * CATEGORY + rank;
+    }
+
+    /**
+     * @param rank a rank
+     * @return the category of the hand, HIGH_CARD to STRAIGHT_FLUSH.
+     */
+    public static int categoryOf( int rank )
+    {
+        return rank / CATEGORY;
+    }
+
+    /**
+     * @param rank a rank
+     * @return the most significant card rank: the highest card, the pair, the trips and so on.
+     */
+    public static int topRankOf( int rank )
+    {
+        return (rank % CATEGORY) / (CATEGORY / BASE) - 1;
+    }
+
+    /**
+     * @param rank a rank
+     * @return the name of the category of the hand, as in {@link Poker#pokerTypes}.
+     */
+    public static String nameOf( int rank )
+    {
+        return Poker.pokerTypes[STRAIGHT_FLUSH - categoryOf( rank )];
+    }
+
+    /**
+     * Ranks a hand.
+     *
+     * @param hand 1 to 7 cards of a standard deck.
+     * @return the rank of the hand.
+     */
+    public static int rank( List<Card> hand )
+    {
+        switch (hand.size())
+        {
+            case 1:
+                return partial[1][hand.get( 0 ).getValue()];
+            case 2:
+                return partial[2][index( hand.get( 0 ).getValue(), hand.get( 1 ).getValue() )];
+            case 3:
+            case 4:
+                return partial[hand.size()][Poker.rankIndex( hand )];
+            default:
+                return byScore[Poker.evaluateBest( hand )];
+        }
+    }
+
+    /**
+     * Ranks a hand of cards packed by {@link CardCodec}.
+     *
+     * @param hand   an array holding the packed cards.
+     * @param offset the index in hand of the first card.
+     * @param count  the number of cards, from 1 to 7.
+     * @return the rank of the hand.
+     */
+    public static int rank( int[] hand, int offset, int count )
+    {
+        switch (count)
+        {
+            case 1:
+                return partial[1][CardCodec.rankOf( hand[offset] )];
+            case 2:
+                return partial[2][index( CardCodec.rankOf( hand[offset] ), CardCodec.rankOf( hand[offset + 1] ))];
+            case 3:
+                return partial[3][Poker.rankIndex( CardCodec.rankOf( hand[offset] ),
+                    CardCodec.rankOf( hand[offset + 1] ), CardCodec.rankOf( hand[offset + 2] ))];
+            case 4:
+                return partial[4][Poker.rankIndex( CardCodec.rankOf( hand[offset] ),
+                    CardCodec.rankOf( hand[offset + 1] ), CardCodec.rankOf( hand[offset + 2] ),
+                    CardCodec.rankOf( hand[offset + 3] ))];
+            default:
+                return byScore[Poker.evaluateBest( hand, offset, count )];
+        }
+    }
+
+    private static int index( int r1, int r2 )
+    {
+        return Math.max( r1, r2 ) * 13 + Math.min( r1, r2 );
+    }
+
+    /**
+     * The rank of a hand without a straight or a flush: its category, then the ranks of its
+     * groups of cards, larger groups first.
+     */
+    private static int rankOfGroups( int[] counts )
+    {
+        int pairs = 0, trips = 0, quads = 0, digits = 0, rank = 0;
+        for (int count = 4; count > 0; count--)
+        {
+            for (int r = 12; r >= 0; r--)
+            {
+                if (counts[r] == count)
+                {
+                    rank = rank * BASE + r + 1;
+                    digits++;
+                    pairs += (2 == count) ? 1 : 0;
+                    trips += (3 == count) ? 1 : 0;
+                    quads += (4 == count) ? 1 : 0;
+                }
+            }
+        }
+        for (; digits < DIGITS; digits++)
+        {
+            rank *= BASE;
+        }
+        int category = (0 < quads) ? FOUR_OF_A_KIND
+                     : (0 < trips) ? ((0 < pairs) ? FULL_HOUSE : THREE_OF_A_KIND)
+                     : (1 < pairs) ? TWO_PAIR
+                     : (0 < pairs) ? ONE_PAIR : HIGH_CARD;
+        return category * CATEGORY + rank;
+    }
+
+    /**
+     * The rank of five cards with the given value from the 5 card evaluator.
+     */
+    private static int rankOfFiveCards( int[] counts, int score )
+    {
+        int category = STRAIGHT_FLUSH - Poker.typeOfScore( score );
+        if (STRAIGHT != category && STRAIGHT_FLUSH != category)
+            return category * CATEGORY + rankOfGroups( counts ) % CATEGORY;
+        // a straight is ranked by its top card; the ace is low in a five high straight
+        int top = 12;
+        while (0 == counts[top])
+            top--;
+        if (12 == top && 0 == counts[11])
+            top = 3;
+        return rankOf( category, top );
+    }
+
+    /**
+     * Adds every way of holding the remaining cards in the ranks from rank down to the table of
+     * hands of the given size.
+     */
+    private static void addPartialHands( int[] counts, int rank, int remaining, int size )
+    {
+        if (0 > rank)
+        {
+            if (0 == remaining)
+                partial[size][sortedIndex( counts, size )] = rankOfGroups( counts );
+            return;
+        }
+        for (int count = Math.min( 4, remaining ); count >= 0; count--)
+        {
+            counts[rank] = count;
+            addPartialHands( counts, rank - 1, remaining - count, size );
+        }
+        counts[rank] = 0;
+    }
+
+    /**
+     * @return the index of a hand in its partial table: the ranks of its cards from highest to
+     * lowest, as the digits of a base 13 number.
+     */
+    private static int sortedIndex( int[] counts, int size )
+    {
+        int index = 0;
+        for (int r = 12; r >= 0; r--)
+        {
+            for (int i = 0; i < counts[r]; i++)
+            {
+                index = index * 13 + r;
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Adds every five card hand without a flush, holding the remaining cards in the ranks from
+     * rank down, to the table by score.
+     */
+    private static void addFullHands( int[] counts, int rank, int remaining )
+    {
+        if (0 > rank)
+        {
+            if (0 == remaining)
+            {
+                // deal the cards round the suits, which can't make five of one suit
+                int[] codes = new int[5];
+                int n = 0;
+                for (int r = 0; r < 13; r++)
+                {
+                    for (int i = 0; i < counts[r]; i++, n++)
+                    {
+                        codes[n] = CardCodec.encode( 1 << (n % 4), r );
+                    }
+                }
+                int score = Poker.evaluate( codes, 0 );
+                byScore[score] = rankOfFiveCards( counts, score );
+            }
+            return;
+        }
+        for (int count = Math.min( 4, remaining ); count >= 0; count--)
+        {
+            counts[rank] = count;
+            addFullHands( counts, rank - 1, remaining - count );
+        }
+        counts[rank] = 0;
+    }
+}
@@ -1,9 +1,9 @@
 package poker;
 
 import com.passkeysoft.Card;
+import com.passkeysoft.CardCodec;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 
 import static poker.Tables.PRIMES;
@@ -24,17 +24,16 @@ public class Poker
     /*
        Table of hand values for hands of three cards containing at least one pair. Higher values are better.
        Highest hand is three aces, lowest hand is 2, 2, 3 (0, 0, 2)
+       Indexed by rankIndex() of the three cards; hands without a pair have the value 0.
      */
-    public static final HashMap<Integer, Integer> threeTable;
+    public static final short[] threeTable;
     static
     {
-        threeTable = new HashMap<>();
+        threeTable = new short[13 * 13 * 13];
         for (int i = 0; i < 13; i++)
         {
-            int base = PRIMES[i] * PRIMES[i];
             for (int j = 0; j < 13; j++)
             {
-                int result = base * PRIMES[j];
                 int rank;
                 if (j != i)
                 {
@@ -42,7 +41,7 @@ public class Poker
                 }
                 else
                     rank = 13 * 13 + j;
-                threeTable.put( result, rank );
+                threeTable[rankIndex( i, i, j )] = (short) rank;
             }
         }
     }
@@ -50,15 +49,15 @@ public class Poker
       Table of hand values for hands of four cards containing at least one pair. Higher values are better.
        Highest hand is four aces, next category is tree aces, next is two pair (aces and kings), and lowest hand
       is a pair of deuces with 3 and 4 kickers( 0, 0, 1, 2  Note that flushes and straights are not applicable
+      Indexed by rankIndex() of the four cards; hands without a pair have the value 0.
      */
 
-    public static final HashMap<Integer, Integer> fourTable;
+    public static final short[] fourTable;
     static
     {
-        fourTable = new HashMap<>(  );
+        fourTable = new short[13 * 13 * 13 * 13];
         for (int i = 0; i < 13; i++)
         {
-            int base = PRIMES[i] * PRIMES[i];
             for (int j = 0; j < 13; j++)
             {
                 for (int k = 0; k <= j; k++)
@@ -91,14 +90,51 @@ public class Poker
                     }
                     if (0 < rank)
                     {
-                        int index = base * PRIMES[j] * PRIMES[k];
-                        fourTable.put( index, rank );
+                        fourTable[rankIndex( i, i, j, k )] = (short) rank;
                     }
                 }
             }
         }
     }
 
+    /**
+     * Computes the index into threeTable of three ranks, which doesn't depend on their order:
+     * the ranks sorted from highest to lowest, as the digits of a base 13 number.
+     */
+    public static int rankIndex( int r1, int r2, int r3 )
+    {
+        int high = Math.max( r1, Math.max( r2, r3 ));
+        int low = Math.min( r1, Math.min( r2, r3 ));
+        return (high * 13 + (r1 + r2 + r3 - high - low)) * 13 + low;
+    }
+
+    /**
+     * Computes the index into fourTable of four ranks, which doesn't depend on their order:
+     * the ranks sorted from highest to lowest, as the digits of a base 13 number.
+     */
+    public static int rankIndex( int r1, int r2, int r3, int r4 )
+    {
+        // a sorting network of five comparisons
+        int a = Math.max( r1, r2 ), b = Math.min( r1, r2 );
+        int c = Math.max( r3, r4 ), d = Math.min( r3, r4 );
+        int high = Math.max( a, c ), low = Math.min( b, d );
+        int m1 = Math.min( a, c ), m2 = Math.max( b, d );
+        return ((high * 13 + Math.max( m1, m2 )) * 13 + Math.min( m1, m2 )) * 13 + low;
+    }
+
+    /**
+     * Computes the index into threeTable or fourTable of a hand of three or four cards.
+     */
+    public static int rankIndex( List<Card> hand )
+    {
+        if (3 == hand.size())
+            return rankIndex( hand.get( 0 ).getValue(), hand.get( 1 ).getValue(), hand.get( 2 ).getValue() );
+        if (4 == hand.size())
+            return rankIndex( hand.get( 0 ).getValue(), hand.get( 1 ).getValue(), hand.get( 2 ).getValue(),
+                hand.get( 3 ).getValue() );
+        throw new IllegalArgumentException( "Three or four cards are required." );
+    }
+
     public static int computeIndex( List<Card> hand )
     {
         int index = 1;
@@ -162,12 +198,35 @@ public class Poker
         if (hand == null || hand.size() != 5) {
             throw new IllegalArgumentException("Exactly 5 cards are required.");
         }
+        return evaluate( CardCodec.encode( hand.get( 0 )), CardCodec.encode( hand.get( 1 )),
+            CardCodec.encode( hand.get( 2 )), CardCodec.encode( hand.get( 3 )),
+            CardCodec.encode( hand.get( 4 )));
+    }
 
+    /**
+     * Evaluates a hand of five cards packed by {@link CardCodec} starting at offset in an array.
+     * @param cards an array holding the packed cards
+     * @param offset the index in cards of the first card of the hand
+     * @return the value of the hand as an integer between 1 and 7462
+     */
+    public static int evaluate( int[] cards, int offset )
+    {
+        return evaluate( cards[offset], cards[offset + 1], cards[offset + 2], cards[offset + 3],
+            cards[offset + 4] );
+    }
+
+    /**
+     * Evaluates a hand of five cards packed by {@link CardCodec}. The bitmap of the ranks, the
+     * flush test and the product of the primes all come straight from the packed cards.
+     * @return the value of the hand as an integer between 1 and 7462
+     */
+    public static int evaluate( int c1, int c2, int c3, int c4, int c5 )
+    {
         // Calculate index into the flushes/unique table
-        int index = createBitmap( hand );
+        int index = CardCodec.rankBitOf( c1 | c2 | c3 | c4 | c5 );
 
         // Flushes, including straight flushes
-        if (isFlush( hand ))
+        if (0 != CardCodec.suitOf( c1 & c2 & c3 & c4 & c5 ))
         {
             return Flushes.table[index];
         }
@@ -179,11 +238,102 @@ public class Poker
         }
 
         // Remaining hands that contain at least one pair
-        final int product = computeIndex( hand );
+        final int product = CardCodec.primeOf( c1 ) * CardCodec.primeOf( c2 ) * CardCodec.primeOf( c3 )
+            * CardCodec.primeOf( c4 ) * CardCodec.primeOf( c5 );
         int h = hash(product);
         return Tables.Values.TABLE[ h ];
     }
 
+    /**
+     * Evaluates the best 5 card hand which can be made from 5, 6 or 7 cards, on the same scale
+     * as {@link #evaluate(List)}, in a single pass over the cards and without allocating.
+     *
+     * @param hand 5 to 7 cards of a standard deck.
+     * @return the value of the best 5 card hand as an integer between 1 and 7462
+     */
+    public static int evaluateBest( List<Card> hand )
+    {
+        int size = (null == hand) ? 0 : hand.size();
+        if (5 > size || size > 7)
+            throw new IllegalArgumentException( "Between 5 and 7 cards are required." );
+        long suited = 0;
+        int key = 0;
+        for (int i = 0; i < size; i++)
+        {
+            int code = CardCodec.encode( hand.get( i ));
+            suited |= (long) CardCodec.rankBitOf( code ) << (16 * Integer.numberOfTrailingZeros( CardCodec.suitOf( code )));
+            key += SevenCards.POWERS[CardCodec.rankOf( code )];
+        }
+        return evaluateBest( suited, key );
+    }
+
+    /**
+     * Evaluates the best 5 card hand which can be made from 5, 6 or 7 cards packed by
+     * {@link CardCodec}, on the same scale as {@link #evaluate(List)}, in a single pass over the
+     * cards and without allocating.
+     *
+     * @param hand   an array holding the packed cards.
+     * @param offset the index in hand of the first card.
+     * @param count  the number of cards, from 5 to 7.
+     * @return the value of the best 5 card hand as an integer between 1 and 7462
+     */
+    public static int evaluateBest( int[] hand, int offset, int count )
+    {
+        if (5 > count || count > 7)
+            throw new IllegalArgumentException( "Between 5 and 7 cards are required." );
+        long suited = 0;
+        int key = 0;
+        for (int i = offset; i < offset + count; i++)
+        {
+            int code = hand[i];
+            suited |= (long) CardCodec.rankBitOf( code ) << (16 * Integer.numberOfTrailingZeros( CardCodec.suitOf( code )));
+            key += SevenCards.POWERS[CardCodec.rankOf( code )];
+        }
+        return evaluateBest( suited, key );
+    }
+
+    /**
+     * @param suited the bitmap of the ranks held in each suit, 16 bits per suit.
+     * @param key    the sum of the powers for the rank of each card.
+     */
+    private static int evaluateBest( long suited, int key )
+    {
+        for (int shift = 0; shift < 64; shift += 16)
+        {
+            int bitmap = (int) (suited >>> shift) & 0x1FFF;
+            if (5 <= Integer.bitCount( bitmap ))
+                return SevenCards.FLUSHES[bitmap];
+        }
+        return SevenCards.lookup( key );
+    }
+
+    /**
+     * Finds the 5 cards making the best hand among 5 to 7 cards.
+     *
+     * @return a new list of the 5 cards, in the order they appear in hand.
+     */
+    private static List<Card> getBest5CardsOf( List<Card> hand )
+    {
+        int best = evaluateBest( hand );
+        int size = hand.size();
+        List<Card> handOf5 = new ArrayList<>( 5 );
+        // leave out each combination of size - 5 cards until the best hand is found
+        for (int skip = 0; skip < (1 << size); skip++)
+        {
+            if (size - 5 != Integer.bitCount( skip ))
+                continue;
+            handOf5.clear();
+            for (int i = 0; i < size; i++)
+            {
+                if (0 == (skip & (1 << i)))
+                    handOf5.add( hand.get( i ));
+            }
+            if (evaluate( handOf5 ) == best)
+                return handOf5;
+        }
+        throw new IllegalStateException( "No 5 cards make the best hand" );
+    }
+
     public static List<Card> getBestHand( List<List<Card>> allHands )
     {
         // Seven high (7, 5, 4, 3, 2 off suit) is the worst possible hand, with a score of 7462
@@ -203,55 +353,27 @@ public class Poker
 
     public static List<Card> get5CardsList( List<Card> hand)
     {
-        int handSize = hand.size();
-        List<List<Card>> allHands = new ArrayList<>(  );
-
-        for ( Card firstCard : hand )
-        {
-            List<Card> handOf5 = new ArrayList<>( 5 );
-            // every card that is not the first added to the hand
-            for( Card card : hand )
-            {
-                if (card != firstCard)
-                {
-                    handOf5.add( card );
-                }
-            }
-            allHands.add( handOf5 );
-        }
-        return getBestHand( allHands );
+        return getBest5CardsOf( hand );
     }
 
     public static List<Card> getBest5CardsOf7( List<Card> hand )
     {
-        List<List<Card>> allHands = new ArrayList<>(  );
-
-        // select first card not to be in the hand
-        for (int firstCard = 6; firstCard > 0; firstCard--)
-        {
-            // select second card not to be in the hand
-            for(int secondCard = firstCard - 1; secondCard > 0; secondCard--)
-            {
-                List<Card> handOf5 = new ArrayList<>( 5 );
-
-                // every card that is not the first or second will added to the hand
-                for(int i = 0; i < 7; i++)
-                {
-                    if (i != firstCard && i != secondCard){
-                        handOf5.add( hand.get( i ));
-                    }
-                }
-                allHands.add( handOf5 );
-            }
-        }
-        return getBestHand( allHands );
+        return getBest5CardsOf( hand );
     }
 
 
 
     public static int typeOfHand( List<Card> hand )
     {
-        int score = evaluate( hand );
+        return typeOfScore( evaluate( hand ));
+    }
+
+    /**
+     * @param score the value of a hand, as returned by {@link #evaluate(List)}
+     * @return the index in pokerTypes of the type of the hand.
+     */
+    public static int typeOfScore( int score )
+    {
         if (11 > score)
             return (0);
         else if (167 > score)
@@ -0,0 +1,143 @@
+package poker;
+
+import static poker.Tables.PRIMES;
+import static poker.Tables.hash;
+
+/**
+ * Tables for valuing the best 5 card hand which can be made from 5, 6 or 7 cards in one step,
+ * rather than by valuing every 5 card hand in turn. Both tables are built when the class is
+ * loaded, from the 5 card tables.
+ * <p>
+ * Five or more cards of one suit can't also hold four of a kind or a full house, so a hand with
+ * a flush is valued by its flush alone, looked up by the bitmap of the ranks in the flush suit.
+ * Any other hand is valued by the number of cards it holds of each rank: the counts are
+ * combined into a key, one base 5 digit per rank, and looked up in an open-addressed hash table.
+ */
+final class SevenCards
+{
+    /** The value of the best flush in each bitmap of 5 to 7 ranks. */
+    static final short[] FLUSHES = new short[1 << 13];
+
+    /** POWERS[rank] is added to a key for each card of that rank. */
+    static final int[] POWERS = new int[13];
+
+    private static final int HASH_BITS = 17;
+    private static final int[] keys = new int[1 << HASH_BITS];
+    private static final short[] values = new short[1 << HASH_BITS];
+
+    static
+    {
+        for (int rank = 0, power = 1; rank < 13; rank++, power *= 5)
+        {
+            POWERS[rank] = power;
+        }
+        for (int bitmap = 0; bitmap < FLUSHES.length; bitmap++)
+        {
+            int count = Integer.bitCount( bitmap );
+            if (5 <= count && count <= 7)
+                FLUSHES[bitmap] = bestFlush( bitmap );
+        }
+        int[] counts = new int[13];
+        for (int cards = 5; cards <= 7; cards++)
+        {
+            addHands( counts, 0, cards );
+        }
+    }
+
+    private SevenCards()
+    {
+    }
+
+    private static int slot( int key )
+    {
+        return (key * 0x9E3779B9) >>> (32 - HASH_BITS);
+    }
+
+    /**
+     * @param key the sum of the powers for the rank of each card.
+     * @return the value of the best hand without a flush which can be made from the cards.
+     * @throws IllegalArgumentException if no 5 to 7 cards of a single deck have those ranks.
+     */
+    static int lookup( int key )
+    {
+        int mask = keys.length - 1;
+        for (int i = slot( key ); 0 != keys[i]; i = (i + 1) & mask)
+        {
+            if (keys[i] == key)
+                return values[i];
+        }
+        throw new IllegalArgumentException( "Not a hand of 5 to 7 cards from a single deck" );
+    }
+
+    private static short bestFlush( int bitmap )
+    {
+        int best = Integer.MAX_VALUE;
+        // every subset of exactly five of the ranks
+        for (int sub = bitmap; sub != 0; sub = (sub - 1) & bitmap)
+        {
+            if (5 == Integer.bitCount( sub ))
+                best = Math.min( best, Flushes.table[sub] );
+        }
+        return (short) best;
+    }
+
+    /**
+     * Adds every way of holding the remaining cards in the ranks from rank up to the hash table.
+     */
+    private static void addHands( int[] counts, int rank, int remaining )
+    {
+        if (13 == rank)
+        {
+            if (0 == remaining)
+                add( counts );
+            return;
+        }
+        for (int count = Math.min( 4, remaining ); count >= 0; count--)
+        {
+            counts[rank] = count;
+            addHands( counts, rank + 1, remaining - count );
+        }
+        counts[rank] = 0;
+    }
+
+    private static void add( int[] counts )
+    {
+        int[] ranks = new int[7];
+        int numCards = 0, key = 0;
+        for (int rank = 0; rank < 13; rank++)
+        {
+            for (int i = 0; i < counts[rank]; i++)
+            {
+                ranks[numCards++] = rank;
+                key += POWERS[rank];
+            }
+        }
+        int best = Integer.MAX_VALUE;
+        // leave out every combination of numCards - 5 cards
+        for (int skip = 0; skip < (1 << numCards); skip++)
+        {
+            if (numCards - 5 != Integer.bitCount( skip ))
+                continue;
+            int bitmap = 0, product = 1;
+            for (int i = 0; i < numCards; i++)
+            {
+                if (0 == (skip & (1 << i)))
+                {
+                    bitmap |= 1 << ranks[i];
+                    product *= PRIMES[ranks[i]];
+                }
+            }
+            int value = (5 == Integer.bitCount( bitmap )) ? NoPairs.table[bitmap]
+                                                            : Tables.Values.TABLE[hash( product )];
+            best = Math.min( best, value );
+        }
+        int mask = keys.length - 1;
+        int i = slot( key );
+        while (0 != keys[i])
+        {
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = (short) best;
+    }
+}
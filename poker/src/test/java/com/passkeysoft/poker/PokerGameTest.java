@@ -3,10 +3,15 @@ package com.passkeysoft.poker;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.passkeysoft.Card;
+import com.passkeysoft.CardCodec;
+import com.passkeysoft.RandomSource;
+import com.passkeysoft.cardgameserver.CardGameMetadata;
 import org.hamcrest.Matchers;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
+import poker.BatchEvaluator;
+import poker.PartialHandRanker;
 import poker.Poker;
 
 import java.util.*;
@@ -16,6 +21,8 @@ import static com.passkeysoft.poker.PokerDeck.*;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 public class PokerGameTest
 {
@@ -30,6 +37,39 @@ public class PokerGameTest
     {
     }
 
+    /**
+     * Deals random hands from a newly shuffled deck, a card at a time to players 1, 2 and so on.
+     *
+     * @param random  the source of the shuffle
+     * @param players the number of hands
+     * @param size    the number of cards in each hand
+     * @param packed  receives each hand packed by {@link CardCodec}, in the order it was dealt
+     * @return the hands, in the order they were dealt
+     */
+    private static List<List<Card>> dealRandomHands( Random random, int players, int size, int[][] packed )
+    {
+        PokerDeck deck = new PokerDeck();
+        deck.setRandomSource( RandomSource.of( random ));
+        deck.shuffle();
+        List<List<Card>> hands = new ArrayList<>( players );
+        for (int player = 1; player <= players; player++)
+        {
+            hands.add( new ArrayList<>( size ));
+        }
+        for (int i = 0; i < size; i++)
+        {
+            for (int player = 1; player <= players; player++)
+            {
+                hands.get( player - 1 ).add( deck.dealCardTo( player ));
+            }
+        }
+        for (int player = 1; player <= players; player++)
+        {
+            packed[player - 1] = deck.getEncodedHand( player );
+        }
+        return hands;
+    }
+
     private List<Card> buildRoyalFlush()
     {
         ArrayList<Card> hand = new ArrayList<Card>();
@@ -184,6 +224,100 @@ public class PokerGameTest
         myHand = deck.buildHandAsJSON( bestHand, "" );
     }
 
+    @Test(expected = IllegalStateException.class)
+    public void closedGame()
+    {
+        PokerGame<PokerPlayer> game = new PokerGame<>(600000, null );
+        game.close();
+        // the deck has gone back to the pool, and may be dealing at another table
+        game.dealNewHandToPlayer( 1 );
+    }
+
+    @Test
+    public void gameOverReleasesDeck() throws InterruptedException
+    {
+        CardGameMetadata<PokerGame<PokerPlayer>, PokerPlayer> meta = new CardGameMetadata<>( "admin" );
+        PokerGame<PokerPlayer> game = new PokerGame<>( 50, new PokerServer().new Monitor( meta ));
+        meta.theGame = game;
+        PokerDeck deck = game.getDeck();
+        game.start();
+        synchronized (game)
+        {
+            game.setGameOver().notifyAll();
+        }
+        // the play thread stops, stops the monitor, then hands the deck back
+        for (int wait = 0; wait < 100; wait++) try
+        {
+            game.getDeck();
+            Thread.sleep( 50 );
+        }
+        catch (IllegalStateException closed)
+        {
+            break;
+        }
+        PokerGame<PokerPlayer> next = new PokerGame<>( 600000, null );
+        assertSame( deck, next.getDeck() );
+        next.close();
+    }
+
+    @Test
+    public void evaluatePacked()
+    {
+        List<Card> hand = buildRoyalFlush();
+        int[] codes = new int[7];
+        for (int i = 0; i < 5; i++)
+        {
+            codes[i + 2] = CardCodec.encode( hand.get( i ));
+        }
+        assertEquals( 1, Poker.evaluate( codes, 2 ));
+        assertEquals( 1, Poker.evaluate( codes[2], codes[3], codes[4], codes[5], codes[6] ));
+        codes[6] = CardCodec.encode( HEARTS, ACE );
+        assertEquals( "Straight", pokerTypes[Poker.typeOfScore( Poker.evaluate( codes, 2 ))] );
+    }
+
+    @Test
+    public void evaluateBest()
+    {
+        // the best hand is found whichever cards have to be left out, including the first
+        List<Card> hand = new ArrayList<>( buildRoyalFlush() );
+        hand.add( 0, new Card( HEARTS, DEUCE ));
+        hand.add( 0, new Card( SPADES, DEUCE ));
+        assertEquals( 1, Poker.evaluateBest( hand ));
+        assertEquals( 1, Poker.evaluate( Poker.getBest5CardsOf7( hand )));
+        hand.remove( 6 );
+        hand.add( 0, new Card( DIAMONDS, DEUCE ));
+        assertEquals( "Three of a Kind", pokerTypes[Poker.typeOfScore( Poker.evaluateBest( hand ))] );
+
+        // compare with every 5 card hand, for many random hands of 5, 6 and 7 cards
+        Random random = new Random( 7 );
+        for (int trial = 0; trial < 3000; trial++)
+        {
+            int size = 5 + trial % 3;
+            int[][] packed = new int[1][];
+            List<Card> cards = dealRandomHands( random, 1, size, packed ).get( 0 );
+            int[] codes = packed[0];
+            int best = Integer.MAX_VALUE;
+            for (int skip = 0; skip < (1 << size); skip++)
+            {
+                if (size - 5 != Integer.bitCount( skip ))
+                    continue;
+                List<Card> handOf5 = new ArrayList<>(  );
+                for (int i = 0; i < size; i++)
+                {
+                    if (0 == (skip & (1 << i)))
+                        handOf5.add( cards.get( i ));
+                }
+                best = Math.min( best, Poker.evaluate( handOf5 ));
+            }
+            assertEquals( best, Poker.evaluateBest( cards ));
+            assertEquals( best, Poker.evaluateBest( codes, 0, codes.length ));
+            if (5 < size)
+                assertEquals( best, Poker.evaluate( Poker.getBest5CardsOf7( cards )));
+            else
+                assertEquals( best, Poker.evaluate( codes[4], codes[3], codes[2], codes[1], codes[0] ));
+        }
+    }
+
     @Test
     public void test7Stud() throws JsonProcessingException
     {
@@ -413,6 +547,93 @@ public class PokerGameTest
         assertNull( next );
     }
 
+    @Test
+    public void partialHandRanks()
+    {
+        List<Card> hand = new ArrayList<>(  );
+        hand.add( new Card( CLUBS, KING ));
+        assertEquals( PartialHandRanker.rankOf( PartialHandRanker.HIGH_CARD, KING ), PartialHandRanker.rank( hand ));
+        hand.add( new Card( HEARTS, KING ));
+        int pair = PartialHandRanker.rank( hand );
+        assertEquals( PartialHandRanker.ONE_PAIR, PartialHandRanker.categoryOf( pair ));
+        assertEquals( KING, PartialHandRanker.topRankOf( pair ));
+        hand.add( new Card( HEARTS, DEUCE ));
+        assertEquals( PartialHandRanker.rankOf( PartialHandRanker.ONE_PAIR, KING, DEUCE ), PartialHandRanker.rank( hand ));
+        hand.add( 0, new Card( SPADES, DEUCE ));
+        assertEquals( PartialHandRanker.rankOf( PartialHandRanker.TWO_PAIR, KING, DEUCE ), PartialHandRanker.rank( hand ));
+        assertTrue( PartialHandRanker.rank( hand ) < PartialHandRanker.rankOf( PartialHandRanker.THREE_OF_A_KIND, DEUCE ));
+        hand.add( new Card( CLUBS, DEUCE ));
+        assertEquals( "Full House", PartialHandRanker.nameOf( PartialHandRanker.rank( hand )));
+
+        // a wheel is the lowest straight
+        List<Card> wheel = Arrays.asList( new Card( CLUBS, ACE ), new Card( HEARTS, DEUCE ), new Card( HEARTS, TREY ),
+            new Card( SPADES, FOUR ), new Card( DIAMONDS, FIVE ));
+        assertEquals( PartialHandRanker.rankOf( PartialHandRanker.STRAIGHT, FIVE ), PartialHandRanker.rank( wheel ));
+
+        // for five or more cards, the ranks are in the same order as the values from evaluateBest
+        Random random = new Random( 11 );
+        for (int trial = 0; trial < 2000; trial++)
+        {
+            int[][] packed = new int[2][];
+            List<List<Card>> hands = dealRandomHands( random, 2, 5 + trial % 3, packed );
+            List<Card> first = hands.get( 0 ), second = hands.get( 1 );
+            int[] codes = packed[0];
+            int byValue = Integer.signum( Poker.evaluateBest( second ) - Poker.evaluateBest( first ));
+            int byRank = Integer.signum( PartialHandRanker.rank( first ) - PartialHandRanker.rank( second ));
+            assertEquals( byValue, byRank );
+            assertEquals( PartialHandRanker.rank( first ), PartialHandRanker.rank( codes, 0, codes.length ));
+            assertEquals( PartialHandRanker.rank( first.subList( 0, 3 )), PartialHandRanker.rank( codes, 0, 3 ));
+        }
+    }
+
+    @Test
+    public void batchEvaluate()
+    {
+        Random random = new Random( 5 );
+        int numHands = 20000;
+        int[] hands5 = new int[numHands * 5], hands7 = new int[numHands * 7];
+        int[][] packed = new int[1][];
+        for (int i = 0; i < numHands; i++)
+        {
+            dealRandomHands( random, 1, 7, packed );
+            System.arraycopy( packed[0], 0, hands5, i * 5, 5 );
+            System.arraycopy( packed[0], 0, hands7, i * 7, 7 );
+        }
+        int[] values5 = new int[numHands];
+        short[] values7 = new short[numHands];
+        BatchEvaluator.evaluate( hands5, 5, values5 );
+        BatchEvaluator.evaluate( hands7, 7, values7 );
+        for (int i = 0; i < numHands; i++)
+        {
+            assertEquals( Poker.evaluate( hands5, i * 5 ), values5[i] );
+            assertEquals( Poker.evaluateBest( hands7, i * 7, 7 ), values7[i] );
+        }
+
+        // a small batch, run on this thread
+        int[] few = new int[3];
+        BatchEvaluator.evaluate( hands7, 6, few );
+        assertEquals( Poker.evaluateBest( hands7, 12, 6 ), few[2] );
+    }
+
+    @Test
+    public void rankIndexIgnoresOrder()
+    {
+        assertEquals( Poker.rankIndex( ACE, DEUCE, KING ), Poker.rankIndex( DEUCE, KING, ACE ));
+        assertEquals( (12 * 13 + 11) * 13, Poker.rankIndex( DEUCE, KING, ACE ));
+        int expected = Poker.rankIndex( NINE, TREY, NINE, SIX );
+        int[] ranks = { NINE, TREY, NINE, SIX };
+        // every order of the four ranks
+        for (int i = 0; i < 4; i++)
+            for (int j = 0; j < 4; j++)
+                for (int k = 0; k < 4; k++)
+                {
+                    int l = 6 - i - j - k;
+                    if (i != j && i != k && j != k && 0 <= l && l < 4 && l != i && l != j && l != k)
+                        assertEquals( expected, Poker.rankIndex( ranks[i], ranks[j], ranks[k], ranks[l] ));
+                }
+        assertEquals( 0, threeTable[Poker.rankIndex( ACE, KING, QUEEN )] );
+    }
+
     @Test
     public void threeTableHighPair()
     {
@@ -421,11 +642,11 @@ public class PokerGameTest
         hand.add( new Card( DIAMONDS, ACE ));
         hand.add( new Card( SPADES, KING ));
 
-        int handValue = threeTable.get( Poker.computeIndex( hand ));
+        int handValue = threeTable[Poker.rankIndex( hand )];
         assertEquals( 7977, 7810 + handValue );     // 7977 Highest pair value for three cards
 
         hand.add( new Card( HEARTS, QUEEN ));
-        handValue = fourTable.get( Poker.computeIndex( hand ));
+        handValue = fourTable[Poker.rankIndex( hand )];
         assertEquals( 8835, 7810 + handValue );     // 8835 Highest pair value for four cards
 
         hand.clear();
@@ -433,17 +654,17 @@ public class PokerGameTest
         hand.add( new Card( DIAMONDS, QUEEN ));
         hand.add( new Card( SPADES, TEN ));
         hand.add( new Card( HEARTS, SIX ));
-        handValue = fourTable.get( Poker.computeIndex( hand ));
+        handValue = fourTable[Poker.rankIndex( hand )];
         assertEquals( 8642, 7810 + handValue );     // 8642 pair of queens with a ten kicker for four cards;
 
         hand.clear();
         hand.add( new Card(CLUBS, JACK ));
         hand.add( new Card( DIAMONDS, JACK ));
         hand.add( new Card( SPADES, JACK ));
-        handValue = threeTable.get( Poker.computeIndex( hand ));
+        handValue = threeTable[Poker.rankIndex( hand )];
 //        assertEquals( 7991, 7810 + handValue );     // 7991 Highest 3ofk value for three cards
         hand.add( new Card( HEARTS, DEUCE ));
-        handValue = fourTable.get( Poker.computeIndex( hand ));
+        handValue = fourTable[Poker.rankIndex( hand )];
         assertEquals( 9047, 7810 + handValue );     // 9097 3ofk value for 3 jacks in four cards
 
 
@@ -451,17 +672,17 @@ public class PokerGameTest
         hand.add( new Card(CLUBS, DEUCE ) );
         hand.add( new Card( DIAMONDS, DEUCE ));
         hand.add( new Card( SPADES, DEUCE ));
-        handValue = threeTable.get( Poker.computeIndex( hand ));
+        handValue = threeTable[Poker.rankIndex( hand )];
         assertEquals( 7979, 7810 + handValue );     // 7979 lowest 3ofk value for three cards
         hand.add( new Card( HEARTS, TREY ));
-        handValue = fourTable.get( Poker.computeIndex( hand ));
+        handValue = fourTable[Poker.rankIndex( hand )];
         assertEquals( 8931, 7810 + handValue );     // 8931 lowest 3ofk value for four cards
 
         hand.clear();
         hand.add( new Card(CLUBS, TEN ) );
         hand.add( new Card( DIAMONDS, TEN ));
         hand.add( new Card( SPADES, TEN ));
-        handValue = threeTable.get( Poker.computeIndex( hand ));
+        handValue = threeTable[Poker.rankIndex( hand )];
         assertEquals( 7987, 7810 + handValue );     // 7987 midrange 3ofk value for three cards
 
         hand.clear();
@@ -469,7 +690,7 @@ public class PokerGameTest
         hand.add( new Card( DIAMONDS, ACE ));
         hand.add( new Card( SPADES, KING ));
         hand.add( new Card( HEARTS, KING ));
-        handValue = fourTable.get( Poker.computeIndex( hand ));
+        handValue = fourTable[Poker.rankIndex( hand )];
         assertEquals( 8927, 7810 + handValue );     // 8927 Highest two pair value for four cards;
 
         hand.clear();
@@ -477,7 +698,7 @@ public class PokerGameTest
         hand.add( new Card( DIAMONDS, DEUCE ));
         hand.add( new Card( SPADES, TREY ));
         hand.add( new Card( HEARTS, TREY ));
-        handValue = fourTable.get( Poker.computeIndex( hand ));
+        handValue = fourTable[Poker.rankIndex( hand )];
         assertEquals( 8850, 7810 + handValue );     // 8850 lowest two pair value for four cards;
 
         hand.clear();
@@ -485,7 +706,7 @@ public class PokerGameTest
         hand.add( new Card( DIAMONDS, TEN ));
         hand.add( new Card( SPADES, SIX ));
         hand.add( new Card( HEARTS, SIX ));
-        handValue = fourTable.get( Poker.computeIndex( hand ));
+        handValue = fourTable[Poker.rankIndex( hand )];
         assertEquals( 8882, 7810 + handValue );     // 8882 two pair value 10s and 6s for four cards;
     }
 }
\ No newline at end of file